@@ -0,0 +1,429 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+
+/**
+ Benchmarks for loading, solving, backtracking and printing mazes, all on seeded mazes so every run uses the same inputs
+ Each benchmark is run a few times first so the JIT has compiled it, then timed over several runs
+ Every timed run hands back a number worked out from its result (tiles searched, path length, bytes written), they are all added
+ into one checksum that is printed at the end, so the JIT can never decide the work is unused and leave it out
+ Results are written as JSON so they can be kept and compared between versions to catch regressions
+ Run with: java Benchmark [all|queues|modes|hierarchical|replanning|weighted|portals|formats|scaling] [--sizes 101,501,1001] [--warmup 10] [--runs 20] [--out benchmark.json]
+ or from the build: mvn -pl benchmarks -am package exec:exec -Dbenchmark.args="modes --sizes 501"
+ **/
+
+public class Benchmark {
+    // Runs before timing starts and timed runs, a handful is not enough for the JIT to settle or for the mean to mean much
+    private static int warmup = 10, runs = 20;
+
+    // Everything the solver can do: A* with each heuristic (with and without distance), then the modes that ignore the distance option
+    private static final char[] MODES = {'n', 'e', 'm', 'p', 'j', 'b', 'f', 'h', 'w'};
+
+    // Rendering goes nowhere but every byte is counted, so what was written can go in the checksum
+    private static long written;
+    private static final PrintStream NOWHERE = new PrintStream(new OutputStream() {
+        public void write (int b) {
+            written++;
+        }
+
+        public void write (byte[] b, int off, int len) {
+            written += len;
+        }
+    });
+
+    // Sum of what every timed run returned, printed once everything is done
+    private static long checksum;
+
+    private final ArrayList<String> results = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        String suite = "all";
+        int[] sizes = {101, 501, 1001};
+        Path out = Path.of("benchmark.json");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--sizes")) {
+                String[] parts = args[++i].split(",");
+                sizes = new int[parts.length];
+                for (int s = 0; s < parts.length; s++) sizes[s] = Integer.parseInt(parts[s].trim());
+            } else if (args[i].equals("--warmup")) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--runs")) {
+                runs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--out")) {
+                out = Path.of(args[++i]);
+            } else {
+                suite = args[i];
+            }
+        }
+
+        int largest = sizes[sizes.length - 1];
+        switch (suite) {
+            case "queues":
+                queueThroughput(largest);
+                break;
+            case "modes":
+                compareModes("Open field", new Maze(MazeGenerator.openField(largest, largest)));
+                compareModes("Random 25% walls", new Maze(MazeGenerator.randomWalls(largest, largest, 0.25, 42)));
+                break;
+            case "hierarchical":
+                compareHierarchical("Random 25% walls", MazeGenerator.randomWalls(largest, largest, 0.25, 42));
+                compareHierarchical("Perfect maze", MazeGenerator.perfectMaze(largest, largest, 42));
+                break;
+            case "replanning":
+                compareReplanning(MazeGenerator.randomWalls(largest, largest, 0.25, 42));
+                break;
+            case "weighted":
+                compareWeighted("Random 25% walls, half the open tiles weighted", MazeGenerator.withTerrain(MazeGenerator.randomWalls(largest, largest, 0.25, 42), 0.5, 7));
+                compareWeighted("Random 25% walls, every open tile weighted", MazeGenerator.withTerrain(MazeGenerator.randomWalls(largest, largest, 0.25, 42), 1.0, 7));
+                break;
+            case "portals":
+                for (int pairs : new int[]{0, 10, 100, 500}) {
+                    comparePortals(MazeGenerator.withPortals(MazeGenerator.randomWalls(largest, largest, 0.25, 42), pairs, 7), pairs);
+                }
+                break;
+            case "formats":
+                compareFormats(sizes);
+                break;
+            case "scaling":
+                parallelScaling(new Maze(MazeGenerator.randomWalls(largest * 2, largest * 2, 0.25, 42)));
+                break;
+            default:
+                Benchmark benchmark = new Benchmark();
+                for (String kind : new String[]{"open", "perfect", "spiral"}) {
+                    for (int size : sizes) {
+                        for (boolean teleporters : new boolean[]{false, true}) {
+                            benchmark.run(kind, size, teleporters);
+                        }
+                    }
+                }
+                benchmark.write(out);
+                System.out.println("Wrote " + benchmark.results.size() + " results to " + out);
+        }
+        System.out.println("Checksum " + checksum);
+    }
+
+    private static Grid generate (String kind, int size, boolean teleporters) {
+        Grid grid;
+        switch (kind) {
+            case "open": grid = MazeGenerator.openField(size, size); break;
+            case "perfect": grid = MazeGenerator.perfectMaze(size, size, 42); break;
+            default: grid = MazeGenerator.spiral(size, size);
+        }
+        return teleporters ? MazeGenerator.withTeleporters(grid, 7) : grid;
+    }
+
+    private void run (String kind, int size, boolean teleporters) {
+        Grid grid = generate(kind, size, teleporters);
+        String maze = String.format("\"maze\": \"%s\", \"size\": %d, \"teleporters\": %b", kind, size, teleporters);
+        System.out.println(kind + " " + size + "x" + size + (teleporters ? " with teleporters" : ""));
+
+        // Parsing the same text Main would read
+        byte[] text = grid.toText();
+        record("load", maze, "", time(() -> digest(load(text))), -1);
+        ByteBuffer binary = ByteBuffer.wrap(MazeBinary.encode(grid));
+        record("loadBinary", maze, "", time(() -> digest(MazeBinary.read(binary))), -1);
+
+        Maze solver = new Maze(grid);
+        for (char hMode : MODES) {
+            for (boolean addDistance : new boolean[]{false, true}) {
+                if (!usesDistance(hMode) && addDistance) continue;
+                // State and open set are made once and reset for every run, the way Maze reuses them, so allocating them is not timed
+                SearchState state = new SearchState(grid.size());
+                OpenSet queue = OpenSet.choose(hMode, grid.size());
+                double[] times = time(() -> {
+                    state.reset();
+                    boolean found = solver.search(state, queue, hMode, addDistance);
+                    return state.getExpanded() + (found ? state.cost : -1);
+                });
+                record("solve", maze, String.format(", \"mode\": \"%c\", \"addDistance\": %b", hMode, addDistance), times, state.getExpanded());
+            }
+        }
+
+        // Backtracking and printing use the breadth first solution so they always have the shortest path to work with
+        SearchState state = new SearchState(grid.size());
+        if (!solver.search(state, OpenSet.choose('n', grid.size()), 'n', false)) return;
+        record("findPath", maze, "", time(() -> {
+            int[] path = solver.findPath(state, grid.getStart(), grid.getEnd());
+            return path.length + path[path.length / 2];
+        }), -1);
+        int[] path = solver.findPath(state, grid.getStart(), grid.getEnd());
+        record("render", maze, "", time(() -> {
+            long before = written;
+            solver.printSolution(path, NOWHERE);
+            return written - before;
+        }), -1);
+        record("renderRuns", maze, "", time(() -> writeRuns(grid, path)), -1);
+    }
+
+    private static long digest (Grid grid) {
+        // Depends on the whole maze having been read: its size, where the ends went and the last tile
+        return grid.size() + 31L * grid.getStart() + 961L * grid.getEnd() + grid.getTile(grid.size() - 1);
+    }
+
+    private static Grid load (byte[] text) {
+        try {
+            return MazeLoader.read(new ByteArrayInputStream(text));
+        } catch (IOException e) {
+            // Reading from memory cannot really fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long writeRuns (Grid grid, int[] path) {
+        try {
+            long before = written;
+            new PathWriter(grid).writeRuns(path, NOWHERE);
+            return written - before;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean usesDistance (char hMode) {
+        return hMode == 'n' || hMode == 'e' || hMode == 'm' || hMode == 'p';
+    }
+
+    private static double[] time (LongSupplier benchmark) {
+        // Mean and fastest run in nanoseconds, what every run returns (warm up runs too) goes in the checksum
+        for (int i = 0; i < warmup; i++) checksum += benchmark.getAsLong();
+        long total = 0, best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long time = System.nanoTime();
+            checksum += benchmark.getAsLong();
+            time = System.nanoTime() - time;
+            total += time;
+            best = Math.min(best, time);
+        }
+        return new double[]{(double) total / runs, best};
+    }
+
+    private void record (String benchmark, String maze, String params, double[] times, int tilesSearched) {
+        System.out.printf("  %-8s%-30s %14.0f ns%n", benchmark, params.replace("\"", "").replace(", ", " "), times[0]);
+        results.add(String.format(Locale.ROOT, "{\"benchmark\": \"%s\", %s%s, \"runs\": %d, \"meanNs\": %.0f, \"minNs\": %.0f%s}",
+                benchmark, maze, params, runs, times[0], times[1], tilesSearched >= 0 ? ", \"tilesSearched\": " + tilesSearched : ""));
+    }
+
+    private void write (Path out) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append("  ").append(results.get(i)).append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        Files.write(out, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void queueThroughput (int size) {
+        // How fast each open set expands tiles with every heuristic on one big open maze
+        Maze maze = new Maze(MazeGenerator.openField(size, size));
+        System.out.println("Open field " + size + "x" + size);
+
+        for (char hMode : new char[]{'n', 'e', 'm', 'p'}) {
+            for (boolean addDistance : new boolean[]{false, true}) {
+                for (int q = 0; q < 2; q++) {
+                    OpenSet queue = q == 0 ? new IndexedHeap(size * size) : new BucketQueue(size * size);
+                    SearchState state = new SearchState(size * size);
+                    double[] times = time(() -> {
+                        state.reset();
+                        maze.search(state, queue, hMode, addDistance);
+                        return state.getExpanded();
+                    });
+                    System.out.printf("mode %c distance %-5b %-13s %10d tiles %12.0f tiles/s%n", hMode, addDistance, queue.name(), state.getExpanded(), state.getExpanded() / (times[0] / 1e9));
+                }
+            }
+        }
+    }
+
+    private static void compareModes (String name, Maze maze) {
+        System.out.println();
+        System.out.println(name + ": tiles searched and time for each mode");
+        int tiles = maze.getGrid().size();
+        for (char hMode : MODES) {
+            for (boolean addDistance : new boolean[]{false, true}) {
+                if (!usesDistance(hMode) && addDistance) continue;
+                SearchState state = new SearchState(tiles);
+                OpenSet queue = OpenSet.choose(hMode, tiles);
+                boolean[] found = new boolean[1];
+                double[] times = time(() -> {
+                    state.reset();
+                    found[0] = maze.search(state, queue, hMode, addDistance);
+                    return state.getExpanded() + (found[0] ? state.cost : -1);
+                });
+                System.out.printf("mode %c distance %-5b %10d tiles %10.2f ms %s%n", hMode, addDistance, state.getExpanded(), times[0] / 1e6, found[0] ? "" : "(no path)");
+            }
+        }
+    }
+
+    private static void compareHierarchical (String name, Grid grid) {
+        // Building the cluster graph once, then the same random queries with each mode, paths compared to breadth first search
+        System.out.println(name + " " + grid.getWidth() + "x" + grid.getHeight());
+        Maze maze = new Maze(grid);
+        maze.getComponents();
+        long build = System.nanoTime();
+        HierarchicalGraph hierarchy = maze.getHierarchy();
+        build = System.nanoTime() - build;
+        System.out.printf("  preprocessing %.2f ms, %d nodes, %d edges, %.2f MB (grid is %.2f MB)%n", build / 1e6,
+                hierarchy.getNodeCount(), hierarchy.getEdgeCount(), hierarchy.bytesUsed() / 1e6, grid.bytesUsed() / 1e6);
+
+        Random random = new Random(42);
+        int[][] queries = new int[200][];
+        for (int q = 0; q < queries.length; ) {
+            int start = random.nextInt(grid.size()), end = random.nextInt(grid.size());
+            if (grid.isWalkable(start) && grid.isWalkable(end) && maze.getComponents().connected(start, end)) queries[q++] = new int[]{start, end};
+        }
+        int[] shortest = new int[queries.length];
+        for (int q = 0; q < queries.length; q++) shortest[q] = maze.solve(queries[q][0], queries[q][1], 'n', false).getLength();
+
+        for (char hMode : new char[]{'n', 'm', 'j', 'h'}) {
+            boolean addDistance = hMode == 'm';
+            for (int[] query : queries) checksum += maze.solve(query[0], query[1], hMode, addDistance).getLength();
+            long time = 0, tiles = 0, extra = 0, total = 0;
+            for (int q = 0; q < queries.length; q++) {
+                Solution solution = maze.solve(queries[q][0], queries[q][1], hMode, addDistance);
+                time += solution.getNanos();
+                tiles += solution.getTilesSearched();
+                extra += solution.getLength() - shortest[q];
+                checksum += solution.getLength();
+                total += shortest[q];
+            }
+            System.out.printf("  mode %c distance %-5b %10.3f ms/query %10d tiles/query %6.2f%% longer%n", hMode, addDistance,
+                    time / 1e6 / queries.length, tiles / queries.length, 100.0 * extra / total);
+        }
+    }
+
+    private static void compareReplanning (Grid grid) {
+        // A stream of random door edits, half of them closing a tile on the current path so the path really has to change
+        // After every edit the planner repairs its path and the same maze is solved again from nothing with A* and breadth first search
+        System.out.println("Random 25% walls " + grid.getWidth() + "x" + grid.getHeight() + ", 200 random edits");
+        Maze maze = new Maze(grid);
+        IncrementalPlanner planner = new IncrementalPlanner(maze, grid.getStart(), grid.getEnd());
+        long first = System.nanoTime();
+        Solution current = planner.plan();
+        System.out.printf("  first plan %.2f ms%n", (System.nanoTime() - first) / 1e6);
+
+        Random random = new Random(42);
+        long replan = 0, astar = 0, bfs = 0, replanTiles = 0, astarTiles = 0;
+        int edits = 200;
+        for (int e = 0; e < edits; e++) {
+            int tile;
+            if (current.isFound() && current.getPath().length > 2 && random.nextBoolean()) {
+                tile = current.getPath()[1 + random.nextInt(current.getPath().length - 2)];
+            } else {
+                tile = random.nextInt(grid.size());
+            }
+            if (grid.getTile(tile) != Grid.WALL && grid.getTile(tile) != Grid.OPEN) continue;
+            planner.setOpen(tile, grid.getTile(tile) == Grid.WALL);
+
+            current = planner.plan();
+            replan += current.getNanos();
+            replanTiles += current.getTilesSearched();
+            // Full solves have to label the regions again too, that is part of starting from nothing
+            long time = System.nanoTime();
+            Solution solution = maze.solve(grid.getStart(), grid.getEnd(), 'm', true);
+            astar += System.nanoTime() - time;
+            checksum += solution.getLength();
+            astarTiles += solution.getTilesSearched();
+            time = System.nanoTime();
+            Solution shortest = maze.solve(grid.getStart(), grid.getEnd(), 'n', false);
+            bfs += System.nanoTime() - time;
+            if (shortest.getLength() != current.getLength()) throw new IllegalStateException("Planner path is " + current.getLength() + " long, shortest is " + shortest.getLength());
+        }
+        System.out.printf("  replan     %10.3f ms/edit %10d tiles/edit%n", replan / 1e6 / edits, replanTiles / edits);
+        System.out.printf("  A* re-solve %9.3f ms/edit %10d tiles/edit%n", astar / 1e6 / edits, astarTiles / edits);
+        System.out.printf("  BFS re-solve %8.3f ms/edit%n", bfs / 1e6 / edits);
+    }
+
+    private static void compareWeighted (String name, Grid grid) {
+        // Weighted A* with the bucket queue against the same search on the heap, the path cost has to match
+        System.out.println(name + " " + grid.getWidth() + "x" + grid.getHeight() + ", cheapest open tile costs " + grid.getMinCost());
+        for (int q = 0; q < 2; q++) {
+            OpenSet queue = q == 0 ? new BucketQueue(grid.size()) : new IndexedHeap(grid.size());
+            WeightedSearch search = new WeightedSearch(grid, 1);
+            SearchState state = new SearchState(grid.size());
+            boolean[] found = new boolean[1];
+            double[] times = time(() -> {
+                state.reset();
+                found[0] = search.search(state, queue, grid.getStart(), grid.getEnd());
+                return state.getExpanded() + (found[0] ? state.cost : -1);
+            });
+            System.out.printf("  %-13s %10d tiles %10.2f ms cost %s%n", queue.name(), state.getExpanded(), times[0] / 1e6, found[0] ? state.cost : "(no path)");
+        }
+    }
+
+    private static void comparePortals (Grid grid, int pairs) {
+        // Portal-aware A* (Manhattan with distance) against the same search with no heuristic, both have to find the same length
+        System.out.println("Random 25% walls " + grid.getWidth() + "x" + grid.getHeight() + " with " + pairs + " teleporter pairs");
+        Maze maze = new Maze(grid);
+        for (char hMode : new char[]{'n', 'm'}) {
+            SearchState state = new SearchState(grid.size());
+            OpenSet queue = OpenSet.choose(hMode, grid.size());
+            double[] times = time(() -> {
+                state.reset();
+                boolean found = maze.search(state, queue, hMode, true);
+                return state.getExpanded() + (found ? state.cost : -1);
+            });
+            boolean found = state.isSeen(grid.getEnd());
+            System.out.printf("  %-12s %10d tiles %10.2f ms length %s%n", hMode == 'n' ? "no heuristic" : "A* portals", state.getExpanded(), times[0] / 1e6, found ? state.distance[grid.getEnd()] : "(no path)");
+        }
+    }
+
+    private static void compareFormats (int[] sizes) throws IOException {
+        // Same maze written as text and as binary, then loaded back from disk the way Main and BatchRunner load it
+        Path dir = Files.createTempDirectory("mazes");
+        for (int size : sizes) {
+            Grid grid = MazeGenerator.randomWalls(size, size, 0.25, 42);
+            Path text = dir.resolve(size + ".txt"), binary = dir.resolve(size + ".mazb");
+            Files.write(text, grid.toText());
+            MazeBinary.write(grid, binary);
+            System.out.println("Random 25% walls " + size + "x" + size);
+            for (Path file : new Path[]{text, binary}) {
+                double[] times = time(() -> {
+                    try {
+                        return digest(MazeLoader.load(file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                System.out.printf("  %-6s %14d bytes %12.2f ms%n", file == text ? "text" : "binary", Files.size(file), times[0] / 1e6);
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static void parallelScaling (Maze maze) {
+        Grid grid = maze.getGrid();
+        System.out.println("Fork-join BFS scaling on random 25% walls " + grid.getWidth() + "x" + grid.getHeight());
+        double single = 0;
+        for (int threads : new int[]{1, 2, 4, 8, 16, 32}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelBfs search = new ParallelBfs(grid, pool);
+            SearchState state = new SearchState(grid.size());
+            search.search(state, grid.getStart(), grid.getEnd());
+            checksum += state.getExpanded();
+
+            // Best of 3 so one slow run (GC, other processes) does not hide the scaling
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                state.reset();
+                long time = System.nanoTime();
+                search.search(state, grid.getStart(), grid.getEnd());
+                best = Math.min(best, System.nanoTime() - time);
+                checksum += state.getExpanded();
+            }
+            pool.shutdown();
+            if (threads == 1) single = best;
+            System.out.printf("%2d threads %10.2f ms %6.2fx%n", threads, best / 1e6, single / best);
+        }
+    }
+}
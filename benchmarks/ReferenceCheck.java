@@ -0,0 +1,208 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ Checks every solver mode against a plain reference search on seeded random mazes, so a change that breaks a path shows up straight away
+ The reference is the simplest thing that can be right: breadth first search for step counts, Dijkstra with a PriorityQueue for weighted costs
+ It walks the grid on its own instead of through Grid.neighbour or SearchState, so a bug in those cannot hide itself
+ Every path a mode returns is also walked tile by tile to make sure it starts and ends in the right place and never steps through a wall
+ JPS, bidirectional, fork-join, A* and LPA* (after every edit too) have to match the shortest length exactly, weighted A* the cheapest cost,
+ hierarchical search only has to find a path whenever there is one, and never a shorter one than the shortest
+ Run with: java ReferenceCheck [--mazes 200] [--seed 1], or from the build: mvn test (it runs as part of the benchmarks module)
+ **/
+
+public class ReferenceCheck {
+    // Modes that have to find exactly the shortest path, with the distance to the start added where the mode uses it
+    private static final char[] EXACT = {'n', 'e', 'm', 'p', 'j', 'b', 'f', 'w'};
+    private static final int QUERIES = 20, EDITS = 10;
+
+    private int checked;
+
+    public static void main (String[] args) {
+        int mazes = 200;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--mazes")) mazes = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--seed")) seed = Long.parseLong(args[++i]);
+        }
+
+        ReferenceCheck check = new ReferenceCheck();
+        Random random = new Random(seed);
+        for (int m = 0; m < mazes; m++) {
+            long mazeSeed = random.nextLong();
+            try {
+                check.maze(mazeSeed, m);
+            } catch (AssertionError e) {
+                System.out.println("Maze " + m + " (seed " + mazeSeed + "): " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        System.out.println("All " + check.checked + " queries on " + mazes + " mazes matched the reference");
+    }
+
+    private static Grid generate (long seed, int kind) {
+        // A mix of the mazes the solver sees: open noise, corridors, caves, with and without teleporters and weighted tiles
+        Random random = new Random(seed);
+        int width = 5 + random.nextInt(70), height = 5 + random.nextInt(70);
+        Grid grid;
+        switch (kind % 3) {
+            case 0: grid = MazeGenerator.randomWalls(width, height, 0.1 + random.nextDouble() * 0.3, seed); break;
+            case 1: grid = MazeGenerator.perfectMaze(width, height, random.nextInt(3), seed); break;
+            default: grid = MazeGenerator.caves(width, height, 0.45, 3, seed);
+        }
+        // withPortals needs enough open tiles for the pairs, tiny caves might not have them
+        int pairs = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(Math.max(1, Math.min(30, grid.size() / 40)));
+        try {
+            if (pairs > 0) MazeGenerator.withPortals(grid, pairs, seed);
+        } catch (IllegalArgumentException e) {
+            // No room for them, the maze is checked without teleporters
+        }
+        return grid;
+    }
+
+    private void maze (long seed, int kind) {
+        Random random = new Random(seed);
+        Grid grid = generate(seed, kind);
+        Maze maze = new Maze(grid);
+        int[] open = walkable(grid);
+        if (open.length < 2) return;
+
+        for (int q = 0; q < QUERIES; q++) {
+            int start = open[random.nextInt(open.length)], end = open[random.nextInt(open.length)];
+            int shortest = shortest(grid, start, end);
+            for (char hMode : EXACT) {
+                Solution solution = maze.solve(start, end, hMode, hMode != 'j' && hMode != 'b' && hMode != 'f' && hMode != 'w');
+                expect(solution.getLength() == shortest, hMode, start, end, "length " + solution.getLength() + ", shortest is " + shortest);
+                if (solution.isFound()) walk(grid, solution.getPath(), start, end, hMode, 1);
+            }
+            Solution clusters = maze.solve(start, end, 'h', false);
+            expect(clusters.isFound() == (shortest != -1), 'h', start, end, "found " + clusters.isFound() + ", shortest is " + shortest);
+            if (clusters.isFound()) {
+                expect(clusters.getLength() >= shortest, 'h', start, end, "length " + clusters.getLength() + " is shorter than the shortest " + shortest);
+                walk(grid, clusters.getPath(), start, end, 'h', 1);
+            }
+            checked++;
+        }
+
+        // Weighted tiles and a jump that costs more than a step, on a copy so the unweighted queries above are not affected
+        Grid weighted = MazeGenerator.withTerrain(generate(seed, kind), random.nextDouble(), seed);
+        int teleportCost = random.nextInt(4) * 5;
+        Maze weightedMaze = new Maze(weighted);
+        weightedMaze.setTeleportCost(teleportCost);
+        for (int q = 0; q < QUERIES; q++) {
+            int start = open[random.nextInt(open.length)], end = open[random.nextInt(open.length)];
+            int cheapest = cheapest(weighted, start, end, teleportCost);
+            Solution solution = weightedMaze.solve(start, end, 'w', false);
+            expect(solution.getCost() == cheapest, 'w', start, end, "cost " + solution.getCost() + ", cheapest is " + cheapest + " with jumps costing " + teleportCost);
+            if (solution.isFound()) expect(walk(weighted, solution.getPath(), start, end, 'w', teleportCost) == cheapest, 'w', start, end, "path does not cost what was reported");
+            checked++;
+        }
+
+        // LPA* keeps its answer up to date while tiles open and close, after every edit it has to match a search from nothing
+        int start = open[random.nextInt(open.length)], end = open[random.nextInt(open.length)];
+        IncrementalPlanner planner = new IncrementalPlanner(maze, start, end);
+        for (int e = 0; e <= EDITS; e++) {
+            if (e > 0) {
+                int tile = random.nextInt(grid.size());
+                // The planner's own start and end are ordinary open tiles here, walling them in is not an edit it has to handle
+                if (tile == start || tile == end || grid.getTile(tile) != Grid.WALL && grid.getTile(tile) != Grid.OPEN) continue;
+                planner.setOpen(tile, grid.getTile(tile) == Grid.WALL);
+            }
+            Solution solution = planner.plan();
+            int shortest = shortest(grid, start, end);
+            expect(solution.getLength() == shortest, 'l', start, end, "LPA* length " + solution.getLength() + " after " + e + " edits, shortest is " + shortest);
+            if (solution.isFound()) walk(grid, solution.getPath(), start, end, 'l', 1);
+            checked++;
+        }
+    }
+
+    private static int[] walkable (Grid grid) {
+        int count = 0;
+        int[] tiles = new int[grid.size()];
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.isWalkable(i)) tiles[count++] = i;
+        }
+        return Arrays.copyOf(tiles, count);
+    }
+
+    private static int[] steps (Grid grid, int tile) {
+        // LEFT, UP, RIGHT, DOWN and the TELEPORTER partner, written out again here on purpose so the reference shares nothing with the solver
+        int x = grid.getX(tile), y = grid.getY(tile);
+        return new int[]{
+            x > 0 ? grid.index(x - 1, y) : -1,
+            y > 0 ? grid.index(x, y - 1) : -1,
+            x < grid.getWidth() - 1 ? grid.index(x + 1, y) : -1,
+            y < grid.getHeight() - 1 ? grid.index(x, y + 1) : -1,
+            grid.isTeleport(tile) ? grid.getPartner(tile) : -1
+        };
+    }
+
+    private static int shortest (Grid grid, int start, int end) {
+        // Breadth first search, fewest steps with a jump counting as one, -1 if there is no path
+        int[] distance = new int[grid.size()];
+        Arrays.fill(distance, -1);
+        distance[start] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int curr = queue.poll();
+            if (curr == end) return distance[curr];
+            for (int next : steps(grid, curr)) {
+                if (next == -1 || !grid.isWalkable(next) || distance[next] != -1) continue;
+                distance[next] = distance[curr] + 1;
+                queue.add(next);
+            }
+        }
+        return -1;
+    }
+
+    private static int cheapest (Grid grid, int start, int end, int teleportCost) {
+        // Dijkstra, walking onto a tile costs its weight and a jump costs teleportCost, -1 if there is no path
+        int[] cost = new int[grid.size()];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        cost[start] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, start});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int curr = (int) entry[1];
+            if (entry[0] > cost[curr]) continue;
+            if (curr == end) return cost[curr];
+            int[] next = steps(grid, curr);
+            for (int n = 0; n < next.length; n++) {
+                if (next[n] == -1 || !grid.isWalkable(next[n])) continue;
+                int through = cost[curr] + (n == 4 ? teleportCost : grid.cost(next[n]));
+                if (through < cost[next[n]]) {
+                    cost[next[n]] = through;
+                    queue.add(new long[]{through, next[n]});
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int walk (Grid grid, int[] path, int start, int end, char hMode, int teleportCost) {
+        // Paths go from the end back to the start, every move has to be one step or a jump between partners, returns what walking it costs
+        expect(path[path.length - 1] == start && path[0] == end, hMode, start, end, "path does not join the start and end");
+        int cost = 0;
+        for (int i = path.length - 1; i > 0; i--) {
+            int from = path[i], to = path[i - 1];
+            expect(grid.isWalkable(to), hMode, start, end, "path goes through the wall at " + grid.getX(to) + "," + grid.getY(to));
+            int dx = Math.abs(grid.getX(from) - grid.getX(to)), dy = Math.abs(grid.getY(from) - grid.getY(to));
+            if (dx + dy == 1) {
+                // Partners side by side can be walked or jumped between, the search takes whichever is cheaper
+                cost += grid.getPartner(from) == to ? Math.min(grid.cost(to), teleportCost) : grid.cost(to);
+            } else {
+                expect(grid.getPartner(from) == to, hMode, start, end, "path jumps from " + grid.getX(from) + "," + grid.getY(from) + " to " + grid.getX(to) + "," + grid.getY(to));
+                cost += teleportCost;
+            }
+        }
+        return cost;
+    }
+
+    private static void expect (boolean ok, char hMode, int start, int end, String message) {
+        if (!ok) throw new AssertionError("mode " + hMode + " from tile " + start + " to " + end + ": " + message);
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ Solves a whole directory (or a manifest file listing one maze file per line) without any GUI, so it runs on headless machines
+ Mazes are solved on a pool of worker threads and one result line per maze is written as soon as it is done, as CSV or JSON Lines
+ Nothing here touches Swing or AWT so those classes are never loaded
+ Run with: java BatchRunner <directory|manifest> [--mode m] [--distance] [--threads 4] [--format csv|jsonl] [--out results.csv]
+ **/
+
+public class BatchRunner {
+    private final char hMode;
+    private final boolean addDistance;
+    private final boolean json;
+    private final Writer out;
+
+    private BatchRunner (char hMode, boolean addDistance, boolean json, Writer out) {
+        this.hMode = hMode;
+        this.addDistance = addDistance;
+        this.json = json;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: java BatchRunner <directory|manifest> [--mode m] [--distance] [--threads 4] [--format csv|jsonl] [--out results.csv]");
+            System.exit(2);
+        }
+        // Belt and braces: even if something did reach for AWT it would not try to open a display
+        System.setProperty("java.awt.headless", "true");
+        // Per-maze metrics on JMX too, so a long batch can be watched for slow mazes while it runs
+        SolverStats.register();
+
+        Path input = Path.of(args[0]);
+        char hMode = 'n';
+        boolean addDistance = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean json = false;
+        Path outFile = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--mode": hMode = args[++i].charAt(0); break;
+                case "--distance": addDistance = true; break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--format": json = args[++i].equalsIgnoreCase("jsonl"); break;
+                case "--out": outFile = Path.of(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Writer writer = outFile == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(outFile, StandardCharsets.UTF_8);
+        BatchRunner runner = new BatchRunner(hMode, addDistance, json, writer);
+        if (!json) runner.write("file,width,height,found,pathLength,tilesSearched,loadNanos,solveNanos,error");
+
+        // Each maze is independent, so just hand them out to the pool and let results arrive in whatever order they finish
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (Path file : mazeFiles(input)) {
+            pool.execute(() -> runner.solve(file));
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        writer.flush();
+        if (outFile != null) writer.close();
+    }
+
+    private static List<Path> mazeFiles (Path input) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> list = Files.list(input)) {
+                list.filter(Files::isRegularFile).sorted().forEach(files::add);
+            }
+        } else {
+            // Manifest: one path per line, relative to the manifest, blank lines and # comments are skipped
+            Path base = input.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(input, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) files.add(base.resolve(line));
+            }
+        }
+        return files;
+    }
+
+    private void solve (Path file) {
+        long loadTime = System.nanoTime();
+        Grid grid;
+        Maze maze;
+        try {
+            grid = MazeLoader.load(file);
+            maze = new Maze(grid);
+            maze.setSource(file.toString(), System.nanoTime() - loadTime);
+            maze.validMaze();
+        } catch (IOException | RuntimeException e) {
+            record(file, null, null, System.nanoTime() - loadTime, e.getMessage());
+            return;
+        }
+        loadTime = System.nanoTime() - loadTime;
+
+        try {
+            Solution solution = maze.solve(grid.getStart(), grid.getEnd(), hMode, addDistance);
+            record(file, grid, solution, loadTime, null);
+        } catch (RuntimeException e) {
+            record(file, grid, null, loadTime, e.getMessage());
+        }
+    }
+
+    private void record (Path file, Grid grid, Solution solution, long loadNanos, String error) {
+        String name = file.toString();
+        int width = grid == null ? -1 : grid.getWidth();
+        int height = grid == null ? -1 : grid.getHeight();
+        boolean found = solution != null && solution.isFound();
+        int length = solution == null ? -1 : solution.getLength();
+        int tiles = solution == null ? -1 : solution.getTilesSearched();
+        long solveNanos = solution == null ? -1 : solution.getNanos();
+        if (json) {
+            write(String.format(Locale.ROOT, "{\"file\": %s, \"width\": %d, \"height\": %d, \"found\": %b, \"pathLength\": %d, \"tilesSearched\": %d, \"loadNanos\": %d, \"solveNanos\": %d%s}",
+                    quoteJson(name), width, height, found, length, tiles, loadNanos, solveNanos, error == null ? "" : ", \"error\": " + quoteJson(error)));
+        } else {
+            write(String.format(Locale.ROOT, "%s,%d,%d,%b,%d,%d,%d,%d,%s", quoteCsv(name), width, height, found, length, tiles, loadNanos, solveNanos, error == null ? "" : quoteCsv(error)));
+        }
+    }
+
+    private synchronized void write (String line) {
+        // Flushed straight away so results can be followed while the batch is still running
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write result", e);
+        }
+    }
+
+    private static String quoteCsv (String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') == -1 && s.indexOf('"') == -1 && s.indexOf('\n') == -1) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String quoteJson (String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : (s == null ? "null" : s).toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ Breadth first search from the start and the end at the same time, stopping when the two searches meet in the middle
+ Each side only has to reach about half the path length, so on long corridor mazes far fewer tiles are searched
+ The side with the smaller frontier is grown one whole level at a time, and every meeting found in that level is
+ compared so the shortest join is used, which keeps the path the same length as a normal breadth first search
+ The teleporter pair is a normal two way step here, the seen arrays stop either side jumping back and forth
+ **/
+
+public class BidirectionalSearch {
+    private final Grid grid;
+
+    // Current and next level for each side
+    private int[] forward = new int[64], backward = new int[64], next = new int[64];
+    private int forwardSize, backwardSize, nextSize;
+
+    // Best meeting found so far: a step from a forward tile to a backward tile
+    private int best, meetForward, meetBackward;
+
+    public BidirectionalSearch (Grid grid) {
+        this.grid = grid;
+    }
+
+    public boolean search (SearchState state, int start, int end) {
+        // The forward side uses the state passed in so findPath works afterwards, the backward side gets its own
+        SearchState back = state.reverse();
+
+        state.distance[start] = 0;
+        state.markSeen(start);
+        forward[0] = start;
+        forwardSize = 1;
+
+        back.distance[end] = 0;
+        back.markSeen(end);
+        backward[0] = end;
+        backwardSize = 1;
+
+        best = Integer.MAX_VALUE;
+        // Stop as soon as a level finds a meeting point, or one side runs out of tiles which means there is no path
+        while (best == Integer.MAX_VALUE && forwardSize > 0 && backwardSize > 0) {
+            if (forwardSize <= backwardSize) {
+                expand(state, back, true);
+            } else {
+                expand(back, state, false);
+            }
+        }
+        if (best == Integer.MAX_VALUE) return false;
+
+        // Join the two chains: turn the backward parents around so every tile from the meeting point points back towards the start
+        state.parent[meetBackward] = meetForward;
+        state.distance[meetBackward] = state.distance[meetForward] + 1;
+        int t = meetBackward;
+        while (t != end) {
+            int n = back.parent[t];
+            state.parent[n] = t;
+            state.distance[n] = state.distance[t] + 1;
+            t = n;
+        }
+        return true;
+    }
+
+    private void expand (SearchState side, SearchState other, boolean isForward) {
+        // Grow one whole level of one side, both sides work the same way since every step can be taken in both directions
+        int[] level = isForward ? forward : backward;
+        int levelSize = isForward ? forwardSize : backwardSize;
+        nextSize = 0;
+        for (int l = 0; l < levelSize; l++) {
+            int curr = level[l];
+            // Animation order is always kept in the forward state, that is the one the GUI gets
+            (isForward ? side : other).addExpanded(curr);
+            for (int n = 0; n < 5; n++) {
+                int next = neighbour(curr, n);
+                if (next == -1) continue;
+                if (other.isSeen(next)) {
+                    // Meeting point, keep the shortest one in this level
+                    int length = side.distance[curr] + 1 + other.distance[next];
+                    if (length < best) {
+                        best = length;
+                        meetForward = isForward ? curr : next;
+                        meetBackward = isForward ? next : curr;
+                    }
+                } else if (side.markSeen(next)) {
+                    side.parent[next] = curr;
+                    side.distance[next] = side.distance[curr] + 1;
+                    push(next);
+                }
+            }
+        }
+        int[] swap = level;
+        if (isForward) {
+            forward = this.next;
+            forwardSize = nextSize;
+        } else {
+            backward = this.next;
+            backwardSize = nextSize;
+        }
+        this.next = swap;
+    }
+
+    private int neighbour (int curr, int n) {
+        // Same as Grid.neighbour but walls count as no tile
+        int next = grid.neighbour(curr, n);
+        if (next == -1 || !grid.isWalkable(next)) return -1;
+        return next;
+    }
+
+    private void push (int tile) {
+        if (nextSize == next.length) next = Arrays.copyOf(next, nextSize * 2);
+        next[nextSize++] = tile;
+    }
+
+    public long bytesUsed () {
+        return 4L * (forward.length + backward.length + next.length);
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ Bucket queue for small whole number priorities: one list of tiles per priority value
+ Adding and lowering a priority are O(1), and taking the lowest only has to scan forward over empty buckets
+ Tiles with the same priority come out newest first, which makes A* dive towards the end instead of spreading out like BFS when many tiles tie
+ The lists are linked through arrays so nothing is allocated per tile
+ **/
+
+public class BucketQueue implements OpenSet {
+    // Per tile: its priority and the tiles before and after it in the same bucket, -1 for none
+    private final int[] key, next, prev;
+    // Bit per tile so contains() does not need a separate marker value in key
+    private final long[] queued;
+    // Per priority: first tile in the bucket
+    private int[] head;
+    private int size = 0;
+    // Counted for SolveMetrics, a couple of increments per add is all they cost
+    private int pushes = 0, peakSize = 0;
+    // No bucket below this has anything in it
+    private int lowest = 0;
+
+    public BucketQueue (int tiles) {
+        key = new int[tiles];
+        next = new int[tiles];
+        prev = new int[tiles];
+        queued = new long[(tiles + 63) >>> 6];
+        head = new int[64];
+        Arrays.fill(head, -1);
+    }
+
+    public boolean isEmpty () {
+        return size == 0;
+    }
+
+    public boolean contains (int tile) {
+        return (queued[tile >>> 6] & (1L << tile)) != 0;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public void add (int tile, int priority) {
+        if (priority < 0) throw new IllegalArgumentException("Bucket queues only take priorities of 0 or more");
+        if (contains(tile)) {
+            // Already waiting, only ever move it closer to the front
+            if (priority >= key[tile]) return;
+            unlink(tile);
+        } else {
+            queued[tile >>> 6] |= 1L << tile;
+            if (++size > peakSize) peakSize = size;
+        }
+        pushes++;
+        if (priority >= head.length) grow(priority);
+        key[tile] = priority;
+        prev[tile] = -1;
+        next[tile] = head[priority];
+        if (head[priority] != -1) prev[head[priority]] = tile;
+        head[priority] = tile;
+        // Heuristics without the distance are not monotonic, so the lowest bucket can move backwards
+        if (priority < lowest) lowest = priority;
+    }
+
+    public int poll () {
+        while (head[lowest] == -1) lowest++;
+        int tile = head[lowest];
+        unlink(tile);
+        queued[tile >>> 6] &= ~(1L << tile);
+        size--;
+        return tile;
+    }
+
+    public void clear () {
+        while (size > 0) poll();
+        lowest = 0;
+        pushes = 0;
+        peakSize = 0;
+    }
+
+    public int pushes () {
+        return pushes;
+    }
+
+    public int peakSize () {
+        return peakSize;
+    }
+
+    private void unlink (int tile) {
+        int p = key[tile];
+        if (prev[tile] == -1) head[p] = next[tile]; else next[prev[tile]] = next[tile];
+        if (next[tile] != -1) prev[next[tile]] = prev[tile];
+    }
+
+    private void grow (int priority) {
+        int oldLength = head.length;
+        int newLength = Math.max(priority + 1, oldLength * 2);
+        head = Arrays.copyOf(head, newLength);
+        Arrays.fill(head, oldLength, newLength, -1);
+    }
+
+    public String name () {
+        return "bucket queue";
+    }
+
+    public long bytesUsed () {
+        return 4L * (key.length + next.length + prev.length + head.length) + 8L * queued.length;
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ Labels every walkable tile with the connected region (component) it belongs to, counting the teleporter pair as joined
+ Built once per maze, after that "can the start reach the end" is two array lookups instead of searching the whole region
+ Uses union-find: every tile points towards a representative tile of its region, joining two regions just repoints one root
+ **/
+
+public class ComponentIndex {
+    private final Grid grid;
+    // Union-find parent while building, then the representative tile of each tile's component (-1 for walls)
+    private final int[] label;
+
+    private ComponentIndex (Grid grid) {
+        this.grid = grid;
+        this.label = new int[grid.size()];
+    }
+
+    public static ComponentIndex build (Grid grid) {
+        return build(grid, null);
+    }
+
+    public static ComponentIndex build (Grid grid, SearchWatcher watcher) {
+        // The first search of a huge maze waits for this, so a watcher that cancels stops it every row or so
+        ComponentIndex index = new ComponentIndex(grid);
+        int width = grid.getWidth(), height = grid.getHeight();
+
+        // Split the rows into stripes, each stripe only touches its own part of the array so they can be labelled in parallel
+        int stripes = Math.min(height, ForkJoinPool.getCommonPoolParallelism() * 4);
+        int rowsPerStripe = (height + stripes - 1) / stripes;
+        IntStream.range(0, stripes).parallel().forEach(s -> index.labelRows(s * rowsPerStripe, Math.min(height, (s + 1) * rowsPerStripe), watcher));
+
+        // Stitch the stripes together along the rows where they meet
+        for (int y = rowsPerStripe; y < height; y += rowsPerStripe) {
+            SearchWatcher.check(watcher);
+            for (int x = 0; x < width; x++) {
+                int i = grid.index(x, y);
+                if (index.label[i] != -1 && index.label[i - width] != -1) index.union(i, i - width);
+            }
+        }
+
+        // TELEPORTER
+        // The teleporters link whatever regions they are in
+        for (int t = 0; t < grid.getTeleporterCount(); t++) {
+            if (t % 1024 == 0) SearchWatcher.check(watcher);
+            int partner = grid.getPartner(grid.getTeleporter(t));
+            if (partner != -1) index.union(grid.getTeleporter(t), partner);
+        }
+
+        // Point every tile straight at its root so lookups never have to follow a chain
+        // Running this in parallel is safe because a tile is only ever repointed at the root, which is still one of its ancestors
+        IntStream.range(0, stripes).parallel().forEach(s -> {
+            int end = Math.min(grid.size(), (s + 1) * rowsPerStripe * width);
+            for (int i = s * rowsPerStripe * width; i < end; i++) {
+                if (i % width == 0) SearchWatcher.check(watcher);
+                if (index.label[i] != -1) index.label[i] = index.find(i);
+            }
+        });
+        return index;
+    }
+
+    private void labelRows (int fromY, int toY, SearchWatcher watcher) {
+        int width = grid.getWidth();
+        for (int y = fromY; y < toY; y++) {
+            SearchWatcher.check(watcher);
+            for (int x = 0; x < width; x++) {
+                int i = grid.index(x, y);
+                if (!walkable(i)) {
+                    label[i] = -1;
+                    continue;
+                }
+                label[i] = i;
+                // LEFT and UP are enough, the other two sides join this tile when their own turn comes
+                if (x > 0 && label[i - 1] != -1) union(i, i - 1);
+                if (y > fromY && label[i - width] != -1) union(i, i - width);
+            }
+        }
+    }
+
+    private boolean walkable (int i) {
+        return grid.isOpen(i) || grid.isStart(i) || grid.isEnd(i);
+    }
+
+    private int find (int i) {
+        // Path halving: skip every other step on the way up so chains get shorter each time they are followed
+        while (label[i] != i) {
+            label[i] = label[label[i]];
+            i = label[i];
+        }
+        return i;
+    }
+
+    private void union (int a, int b) {
+        int rootA = find(a), rootB = find(b);
+        if (rootA == rootB) return;
+        // Always keep the smaller index as the root so the result does not depend on which stripe finished first
+        if (rootA < rootB) label[rootB] = rootA; else label[rootA] = rootB;
+    }
+
+    public int component (int tile) {
+        return label[tile];
+    }
+
+    public boolean connected (int a, int b) {
+        return label[a] != -1 && label[a] == label[b];
+    }
+
+    public long bytesUsed () {
+        return 4L * label.length;
+    }
+}
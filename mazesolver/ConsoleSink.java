@@ -0,0 +1,43 @@
+import java.io.PrintStream;
+
+/**
+ Prints a solve's numbers the way the solver always has: tiles searched, throughput and memory per tile
+ Plus one line with the time each phase took, so a slow maze shows where its time went
+ The path length (or that there is none) is printed by Maze.solveMaze itself, this only adds the numbers
+ Optional, leave it out (Main --quiet) and only the result and the solution are printed
+ **/
+
+public class ConsoleSink implements MetricsSink {
+    private final PrintStream out;
+
+    public ConsoleSink () {
+        this(System.out);
+    }
+
+    public ConsoleSink (PrintStream out) {
+        this.out = out;
+    }
+
+    public void solved (SolveMetrics metrics) {
+        // One solve's lines are printed together even if several threads are solving
+        synchronized (out) {
+            int count = metrics.getExpansions();
+            out.println("There were " + count + " tiles searched");
+            // Throughput makes it easy to compare the open set strategies on the same maze
+            long searchTime = metrics.getPhaseNanos(SolveMetrics.SEARCH);
+            out.printf("Searched %.0f tiles per second%s%n", count / Math.max(searchTime / 1e9, 1e-9), metrics.getQueueName() != null ? " using a " + metrics.getQueueName() : "");
+            if (metrics.getPushes() >= 0) out.println("The open set took " + metrics.getPushes() + " pushes and held at most " + metrics.getPeakOpenSize() + " tiles");
+            // Arrays have a fixed size per tile so the memory used can be worked out exactly rather than guessed from the heap
+            out.printf("Grid and search state used %.2f bytes per tile%n", (double) metrics.getBytesUsed() / ((long) metrics.getWidth() * metrics.getHeight()));
+            if (metrics.getBytesAllocated() >= 0) out.printf("Allocated %.2f MB while solving%n", metrics.getBytesAllocated() / 1e6);
+
+            StringBuilder phases = new StringBuilder("Took");
+            for (int p = 0; p < SolveMetrics.PHASES.length; p++) {
+                long nanos = metrics.getPhaseNanos(p);
+                if (nanos >= 0) phases.append(String.format(" %s %.2f ms,", SolveMetrics.PHASES[p], nanos / 1e6));
+            }
+            phases.setLength(phases.length() - 1);
+            out.println(phases);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ Distances from every source to every target, filled in by Maze.distanceTable with one search per source
+ distances[s][t] is the number of steps from sources[s] to targets[t], -1 if the target cannot be reached
+ On weighted mazes it is what walking there costs instead, each tile costing its digit and a jump the maze's teleport cost
+ Paths are only built when asked for, from the tiles on the paths kept for each source (only if keepPaths was set)
+ **/
+
+public class DistanceTable {
+    private final int[] sources, targets;
+    private final int[][] distances;
+    // Per source, every tile on a path to a target packed with the tile before it (tile << 32 | parent), sorted by tile
+    // null when paths were not kept
+    private final long[][] links;
+
+    DistanceTable (int[] sources, int[] targets, boolean keepPaths) {
+        this.sources = sources;
+        this.targets = targets;
+        this.distances = new int[sources.length][targets.length];
+        this.links = keepPaths ? new long[sources.length][] : null;
+    }
+
+    void setRow (int s, int[] row, long[] pathLinks) {
+        distances[s] = row;
+        if (links != null) links[s] = pathLinks;
+    }
+
+    public int[][] getDistances () {
+        return distances;
+    }
+
+    public int getDistance (int s, int t) {
+        return distances[s][t];
+    }
+
+    public int[] getPath (int s, int t) {
+        // Tiles from targets[t] back to sources[s], the same order findPath uses
+        if (links == null) throw new IllegalStateException("Paths were not kept for this table");
+        if (distances[s][t] == -1) return null;
+        // Weighted distances are costs rather than steps, so count the steps first
+        int steps = 0;
+        for (int tile = targets[t]; tile != sources[s]; tile = parent(s, tile)) steps++;
+        int[] path = new int[steps + 1];
+        int tile = targets[t];
+        for (int i = 0; i <= steps; i++) {
+            path[i] = tile;
+            if (i < steps) tile = parent(s, tile);
+        }
+        return path;
+    }
+
+    private int parent (int s, int tile) {
+        // The link for a tile is the first one at or after tile << 32, since parents are never negative except the source's
+        int i = Arrays.binarySearch(links[s], (long) tile << 32);
+        if (i < 0) i = -i - 1;
+        return (int) links[s][i];
+    }
+
+    public int[] getSources () {
+        return sources;
+    }
+
+    public int[] getTargets () {
+        return targets;
+    }
+}
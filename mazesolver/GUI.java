@@ -1,55 +1,66 @@
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 public class GUI extends JFrame {
-    private final int squareWidth;
-
-    // With no bounds, squares will just draw at 0,0 with whatever width and height
-    private Squares squares = new Squares();
+    // Height of the maze view, the controls go underneath it
+    private static final int VIEW_HEIGHT = 500;
+    // The animation timer ticks this often and paints however many tiles are due, at most MAX_PER_TICK so the window stays responsive
+    private static final int TICK_MS = 15, MAX_PER_TICK = 50_000;
+
+    private final Maze maze;
+    private final TileView squares;
+    private final JButton startButton = new JButton("Start"), cancelButton = new JButton("Cancel");
+    private final JLabel status = new JLabel();
+
+    // Only touched on the event dispatch thread: the running solve, the animation, and the expanded tiles waiting to be painted
+    private Solver solver;
+    private Timer timer;
+    private final ArrayDeque<int[]> waiting = new ArrayDeque<>();
+    private int waitingFrom;
 
     public GUI(int squareNumX, int squareNumY, Maze maze) {
         super("Maze Solver");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        Square[][] mazeArr = maze.getMaze();
+        this.maze = maze;
+        Grid grid = maze.getGrid();
 
         // Need 250 in y direction for all buttons to fit on screen
-        // Squares need to all fit in 500 y for GUI to fit on whole computer screen nicely
-        squareWidth = 500/squareNumY;
-
-        // Need 570 in x direction for all tex tto fit on screen
-        int frameWidth = Math.max(squareNumX * squareWidth, 570);
+        // Maze needs to fit in 500 y for GUI to fit on whole computer screen nicely, bigger mazes start zoomed out and can be zoomed in
+        double tileSize = Math.max(1, (double) VIEW_HEIGHT / squareNumY);
 
-        int squareHeight = squareWidth;
+        // Need 570 in x direction for all text to fit on screen, wide mazes get up to 1000 before they are zoomed out too
+        int frameWidth = (int) Math.max(Math.min(squareNumX * tileSize, 1000), 570);
         int frameHeight = 750;
 
-        // Size the GUI will open at
+        // Size the GUI will open at, the controls are placed by hand so nothing lays them out
         getContentPane().setPreferredSize(new Dimension(frameWidth,frameHeight));
+        getContentPane().setLayout(null);
 
-        // Initial maze state, shows all tiles
-        for (int i = 0; i < squareNumY; i++) {
-            for (int j = 0; j < squareNumX; j++) {
-                squares.addSquare(j * squareWidth, i * squareWidth, squareWidth, squareHeight, chooseColor(mazeArr[i][j]));
-            }
-        }
+        // Every tile is a pixel in an image, so recolouring one is O(1) however big the maze is
+        squares = new TileView(grid, frameWidth, VIEW_HEIGHT);
+        squares.setBounds(0, 0, frameWidth, VIEW_HEIGHT);
 
         // JLabel is basically just a line of text
         JLabel labelMode = new JLabel("Heuristic mode for A*");
-        labelMode.setBounds(20, squareNumY*squareWidth + 20, 300, 20);
+        labelMode.setBounds(20, VIEW_HEIGHT + 20, 300, 20);
         // Add adds the element to the JFrame that the class is extended from
         add(labelMode);
 
         // JComboBox is a drop down box with the values of a string array
         // By starting array at None, that becomes the default option since it defaults to top
         // Chooses which heuristic mode should be used in A*
-        String[] modes = {"None", "Euclidean", "Manhattan", "Proximity sensor"};
+        String[] modes = {"None", "Euclidean", "Manhattan", "Proximity sensor", "Jump point search", "Bidirectional BFS", "Fork-join BFS", "Hierarchical (HPA*)", "Weighted A*"};
 
         JComboBox<String> cbMode = new JComboBox<>(modes);
-        cbMode.setBounds(10, squareNumY*squareWidth + 50,160,20);
+        cbMode.setBounds(10, VIEW_HEIGHT + 50,160,20);
         add(cbMode);
 
         /*
@@ -59,17 +70,17 @@ public class GUI extends JFrame {
          */
 
         JLabel labelDist = new JLabel("Should A* use distance to the start as part of heuristic?");
-        labelDist.setBounds(205, squareNumY*squareWidth + 20, 400, 20);
+        labelDist.setBounds(205, VIEW_HEIGHT + 20, 400, 20);
         add(labelDist);
 
         String[] modeDist = {"No", "Yes"};
 
         JComboBox<String> cbDist = new JComboBox<>(modeDist);
-        cbDist.setBounds(200, squareNumY*squareWidth + 50,160,20);
+        cbDist.setBounds(200, VIEW_HEIGHT + 50,160,20);
         add(cbDist);
 
         JLabel labelAnimate = new JLabel("Animation Speed (milliseconds per square)");
-        labelAnimate.setBounds(20, squareNumY*squareWidth + 100, 300, 20);
+        labelAnimate.setBounds(20, VIEW_HEIGHT + 100, 300, 20);
         add(labelAnimate);
 
         // Slider for tick speed from 0-3000, I think anything higher would be too much
@@ -79,45 +90,33 @@ public class GUI extends JFrame {
         // Show ticks and labels
         slider.setPaintTicks(true);
         slider.setPaintLabels(true);
-        slider.setBounds(0, squareNumY*squareWidth + 100, 500, 100);
+        slider.setBounds(0, VIEW_HEIGHT + 100, 500, 100);
         add(slider);
 
-        JButton startButton = new JButton("Start");
-
         // ActionListener detects if the button is pressed
         // Lambda e -> removes need for separate ActionListener class
         startButton.addActionListener(e -> {
             // the existing Maze class took an int, so I kept that
             String hMode = (String) cbMode.getSelectedItem();
             // No is as index 0, Yes is at index 1 -> if the index is 1 addDistance should be true
-            maze.solveMaze(hMode.toLowerCase().charAt(0), cbDist.getSelectedIndex() == 1);
-            ArrayList<Square> seenOrder = maze.getSeenOrder();
-
-            // Use this instead of Thread.sleep because Swing components are not Thread-safe
-            Timer timer = new Timer(slider.getValue(), new ActionListener() {
-                // Start at i=1 so the start is not included and painted over
-                int i = 1;
-                public void actionPerformed(ActionEvent e) {
-                    // No way to stop timer so we just keep it running and do nothing with it if exceeds array
-                    // Using Thread.sleep and then Timer.stop() would pause the event dispatch thread, stopping the timer from running
-                    if (i < seenOrder.size()) {
-                        Square currAnimate = seenOrder.get(i);
-                        squares.changeSeenColor(currAnimate.getX()*squareWidth, currAnimate.getY()*squareWidth);
-                        i++;
-
-                        // Force the repaint so the changed colors show
-                        getContentPane().repaint();
-                    }
-                }
-            });
-            timer.start();
+            start(hMode.toLowerCase().charAt(0), cbDist.getSelectedIndex() == 1, slider.getValue());
         });
+        startButton.setBounds(20,  VIEW_HEIGHT + 200, 70, 20);
+        add(startButton);
 
-        startButton.setBounds(20,  squareNumY*squareWidth + 200, 50, 20);
+        // Stops the search if it is still running, and the animation either way
+        cancelButton.addActionListener(e -> cancel());
+        cancelButton.setBounds(100,  VIEW_HEIGHT + 200, 80, 20);
+        cancelButton.setEnabled(false);
+        add(cancelButton);
 
-        add(startButton);
+        status.setBounds(190, VIEW_HEIGHT + 200, 380, 20);
+        add(status);
+
+        JLabel labelView = new JLabel("Scroll to zoom, drag to move around, double click to see the whole maze");
+        labelView.setBounds(20, VIEW_HEIGHT + 225, 550, 20);
+        add(labelView);
 
-        // Add squares last to give them priority when drawing
         add(squares);
 
         pack();
@@ -125,42 +124,108 @@ public class GUI extends JFrame {
         setVisible(true);
     }
 
-    private Color chooseColor (Square s) {
-        if (s.isTeleport()) return Color.RED;
-        if (s.isOpen()) return Color.WHITE;
-        if (s.isStart()) return Color.BLUE;
-        if (s.isEnd()) return Color.GREEN;
-        return Color.BLACK;
+    private void start (char hMode, boolean addDistance, int delay) {
+        /*
+        The search runs on a SwingWorker thread so the window never freezes, however big the maze is
+        It publishes the expanded tiles in batches while it runs, and the timer paints them as they arrive at the chosen speed
+        Start at the second tile so the start is not included and painted over
+         */
+        startButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        status.setText("Searching...");
+        squares.clearSeen();
+        waiting.clear();
+        waitingFrom = 1;
+
+        solver = new Solver(hMode, addDistance);
+        timer = new Timer(TICK_MS, new ActionListener() {
+            // Use this instead of Thread.sleep because Swing components are not Thread-safe
+            final long started = System.nanoTime();
+            long painted = 0;
+
+            public void actionPerformed (ActionEvent e) {
+                // Tiles due by now at delay milliseconds each, all of them with no delay
+                long due = delay == 0 ? Long.MAX_VALUE : (System.nanoTime() - started) / 1_000_000 / delay + 1;
+                int budget = (int) Math.min(MAX_PER_TICK, due - painted);
+                while (budget > 0 && !waiting.isEmpty()) {
+                    int[] batch = waiting.peek();
+                    int to = Math.min(batch.length, waitingFrom + budget);
+                    squares.setSeen(batch, waitingFrom, to);
+                    budget -= to - waitingFrom;
+                    painted += to - waitingFrom;
+                    waitingFrom = to;
+                    if (waitingFrom == batch.length) {
+                        waiting.poll();
+                        waitingFrom = 0;
+                    }
+                }
+                // Playback is over once the search has finished and everything it expanded has been painted
+                if (waiting.isEmpty() && solver.finished) finish();
+            }
+        });
+        timer.start();
+        solver.execute();
     }
-}
 
-// Squares will be part of separate JPanel on the JFrame
-class Squares extends JPanel {
-    // HashMap lets us update the color of a rectangle
-    private HashMap<Rectangle, Color> squares = new HashMap<>();
+    private void cancel () {
+        if (solver != null) solver.cancel(false);
+        waiting.clear();
+        finish();
+    }
 
-    public void addSquare(int x, int y, int width, int height, Color color) {
-        Rectangle rect = new Rectangle(x, y, width, height);
-        squares.put(rect, color);
+    private void finish () {
+        timer.stop();
+        startButton.setEnabled(true);
+        cancelButton.setEnabled(false);
     }
 
-    public void changeSeenColor (int x, int y) {
-        // For every rectangle that is being changed, find it and change color
-        for (Rectangle key : squares.keySet()) {
-            if (key.x == x && key.y == y) {
-                squares.replace(key, Color.GRAY);
-            }
+    private class Solver extends SwingWorker<Void, int[]> implements SearchWatcher {
+        private final char hMode;
+        private final boolean addDistance;
+        // Set by done(), which Swing runs after every batch published before it has been processed, unlike isDone()
+        private boolean finished;
+        private long received;
+
+        Solver (char hMode, boolean addDistance) {
+            this.hMode = hMode;
+            this.addDistance = addDistance;
         }
-    }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2 = (Graphics2D) g;
+        @Override
+        protected Void doInBackground () {
+            // The watcher is checked between batches, so cancelling stops the search within a thousand or so tiles
+            maze.solveMaze(hMode, addDistance, this);
+            return null;
+        }
+
+        public void expanded (int[] order, int from, int to) {
+            // On the search thread, the copy is what crosses over to the event dispatch thread
+            publish(Arrays.copyOfRange(order, from, to));
+        }
 
-        for (Rectangle key : squares.keySet()) {
-            g2.setColor(squares.get(key));
-            g2.fill(key);
+        @Override
+        protected void process (List<int[]> batches) {
+            // Cancelled searches can still have batches on their way, they are not painted
+            if (isCancelled()) return;
+            waiting.addAll(batches);
+            for (int[] batch : batches) received += batch.length;
+            status.setText("Searching... " + received + " tiles expanded");
+        }
+
+        @Override
+        protected void done () {
+            finished = true;
+            try {
+                get();
+                status.setText("Search finished");
+            } catch (CancellationException e) {
+                status.setText("Search cancelled");
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                status.setText("Search failed: " + cause.getMessage());
+                waiting.clear();
+                finish();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,360 @@
+import java.util.Arrays;
+
+/**
+ Flat version of the maze so big mazes do not need a Square object for every tile
+ Every tile is one byte in a single array, indexed by y*width+x, so x=0, y=0 is still the top left corner
+ A 10k x 10k maze is 100MB of bytes here instead of hundreds of millions of objects for the GC to look after
+ Teleporters come in labelled pairs: '@' is the original unlabelled pair, and every letter but 'o' is another pair
+ Each teleporter's partner is kept in a small hash table by tile, so a jump is one lookup and nothing is ever removed
+ **/
+
+public class Grid {
+    // Tile kinds, stored as bytes so the whole maze is one compact array
+    public static final byte WALL = 0;
+    public static final byte OPEN = 1;
+    public static final byte START = 2;
+    public static final byte END = 3;
+    public static final byte TELEPORT = 4;
+    // Weighted open tiles '1' to '9' are the kinds WEIGHT_BASE+1 to WEIGHT_BASE+9 (5 to 13), walking onto one costs its digit instead of 1
+    // WEIGHT_BASE is only an offset, it is not a kind of its own, new kinds go after WEIGHT_BASE+9
+    public static final byte WEIGHT_BASE = 4;
+    public static final byte WEIGHT_LAST = WEIGHT_BASE + 9;
+
+    private final int width, height;
+    private final byte[] tiles;
+
+    // Track start and end as we fill the grid so we never have to loop through it to find them
+    private int start = -1, end = -1;
+    private int[] teleporters = new int[2], teleporterLabels = new int[2];
+    private int teleporterCount = 0;
+
+    // Per label: how many tiles use it and the first two of them
+    private int[] labelCount = new int[8], labelFirst = new int[8], labelSecond = new int[8];
+    // Open addressing table from teleporter tile to partner tile, partnerTiles holds -1 in empty slots
+    private int[] partnerTiles = new int[0], partners = new int[0];
+    private int partnerCount = 0;
+
+    // Cheapest and dearest cost of walking onto an open tile as min << 8 | max, worked out the first time they are asked for (-1 until then)
+    // One volatile int so a query on another thread sees both or neither, never a min with the max still missing
+    private volatile int costs = -1;
+
+    public Grid (int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Mazes must be at least 1x1!");
+        if ((long) width * height > Integer.MAX_VALUE) throw new IllegalArgumentException("Mazes can have at most " + Integer.MAX_VALUE + " tiles!");
+        this.width = width;
+        this.height = height;
+        this.tiles = new byte[width * height];
+    }
+
+    public static Grid fromSquares (Square[][] maze, int width, int height) {
+        Grid grid = new Grid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid.setTile(x, y, maze[y][x].toString().charAt(0));
+            }
+        }
+        return grid;
+    }
+
+    public static byte kind (char mark) {
+        // Same characters the text format uses, -1 means the character is not a tile at all
+        switch (mark) {
+            case '#': return WALL;
+            case '.': return OPEN;
+            case 'o': return START;
+            case '*': return END;
+            case '@': return TELEPORT;
+            default:
+                if (mark >= '1' && mark <= '9') return (byte) (WEIGHT_BASE + mark - '0');
+                return label(mark) >= 0 ? TELEPORT : -1;
+        }
+    }
+
+    public static char mark (byte kind) {
+        switch (kind) {
+            case OPEN: return '.';
+            case START: return 'o';
+            case END: return '*';
+            case TELEPORT: return '@';
+            default: return isWeightedKind(kind) ? (char) ('0' + kind - WEIGHT_BASE) : '#';
+        }
+    }
+
+    public static int label (char mark) {
+        // Teleporter label for a character: '@' is 0, 'A'-'Z' are 1-26, 'a'-'z' without 'o' (the start) are 27-51, -1 if not a teleporter
+        if (mark == '@') return 0;
+        if (mark >= 'A' && mark <= 'Z') return 1 + mark - 'A';
+        if (mark >= 'a' && mark < 'o') return 27 + mark - 'a';
+        if (mark > 'o' && mark <= 'z') return 26 + mark - 'a';
+        return -1;
+    }
+
+    public static char labelMark (int label) {
+        if (label == 0) return '@';
+        if (label <= 26) return (char) ('A' + label - 1);
+        if (label < 27 + 'o' - 'a') return (char) ('a' + label - 27);
+        if (label <= 51) return (char) ('a' + label - 26);
+        throw new IllegalArgumentException("Teleporter label " + label + " has no character, the text format has 52 labels");
+    }
+
+    public void setTile (int x, int y, char mark) {
+        byte kind = kind(mark);
+        if (kind < 0) throw new IllegalArgumentException("'" + mark + "' is not a valid tile");
+        if (kind == TELEPORT) setTeleporter(index(x, y), label(mark)); else setTile(index(x, y), kind);
+    }
+
+    public void setTile (int i, byte kind) {
+        // Writing any other tile over the start or end takes it away, so generators can move them and start never points at an end tile
+        if (i == start && kind != START) start = -1;
+        if (i == end && kind != END) end = -1;
+        // Make sure maze only has one start and one end
+        if (kind == START) {
+            if (start != -1 && start != i) throw new IllegalArgumentException("Valid mazes can only have one start!");
+            start = i;
+        } else if (kind == END) {
+            if (end != -1 && end != i) throw new IllegalArgumentException("Valid mazes can only have one end!");
+            end = i;
+        } else if (kind == TELEPORT) {
+            // Teleporters without a label are the '@' pair
+            setTeleporter(i, 0);
+            return;
+        }
+        tiles[i] = kind;
+        // Only written when it changes, generators set tiles from many threads and would otherwise fight over this field
+        if (costs != -1) costs = -1;
+    }
+
+    public void setTeleporter (int i, int label) {
+        // Labels can go past the 52 the text format has room for, the binary format keeps any number of pairs
+        if (label < 0) throw new IllegalArgumentException("Teleporter labels cannot be negative");
+        if (teleporterCount == teleporters.length) {
+            teleporters = Arrays.copyOf(teleporters, teleporterCount * 2);
+            teleporterLabels = Arrays.copyOf(teleporterLabels, teleporterCount * 2);
+        }
+        if (i == start) start = -1;
+        if (i == end) end = -1;
+        teleporters[teleporterCount] = i;
+        teleporterLabels[teleporterCount++] = label;
+        tiles[i] = TELEPORT;
+        costs = -1;
+
+        if (label >= labelCount.length) {
+            int length = Math.max(label + 1, labelCount.length * 2);
+            labelCount = Arrays.copyOf(labelCount, length);
+            labelFirst = Arrays.copyOf(labelFirst, length);
+            labelSecond = Arrays.copyOf(labelSecond, length);
+        }
+        int count = ++labelCount[label];
+        if (count == 1) {
+            labelFirst[label] = i;
+        } else if (count == 2) {
+            labelSecond[label] = i;
+            putPartner(labelFirst[label], i);
+            putPartner(i, labelFirst[label]);
+        } else if (count == 3) {
+            // More than two with one label is not a pair any more, validMaze reports it and until then none of them jump
+            putPartner(labelFirst[label], -1);
+            putPartner(labelSecond[label], -1);
+        }
+    }
+
+    private void putPartner (int tile, int partner) {
+        if (2 * (partnerCount + 1) > partnerTiles.length) {
+            int[] oldTiles = partnerTiles, oldPartners = partners;
+            partnerTiles = new int[Math.max(16, oldTiles.length * 2)];
+            partners = new int[partnerTiles.length];
+            Arrays.fill(partnerTiles, -1);
+            partnerCount = 0;
+            for (int s = 0; s < oldTiles.length; s++) {
+                if (oldTiles[s] != -1) putPartner(oldTiles[s], oldPartners[s]);
+            }
+        }
+        int slot = slot(tile);
+        if (partnerTiles[slot] == -1) partnerCount++;
+        partnerTiles[slot] = tile;
+        partners[slot] = partner;
+    }
+
+    private int slot (int tile) {
+        // Linear probing from a mixed hash, the table is always at most half full so this stops quickly
+        int mask = partnerTiles.length - 1;
+        int hash = tile * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (partnerTiles[slot] != -1 && partnerTiles[slot] != tile) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    public void copyRow (int y, byte[] kinds) {
+        // Bulk copy for loaders, any start, end or teleporter in the row still has to be passed to setTile
+        copyTiles(y * width, kinds, width);
+    }
+
+    public void copyTiles (int i, byte[] kinds, int length) {
+        // Same as copyRow for loaders whose blocks do not line up with rows
+        System.arraycopy(kinds, 0, tiles, i, length);
+        costs = -1;
+    }
+
+    public int index (int x, int y) {
+        return y * width + x;
+    }
+
+    public int getX (int i) {
+        return i % width;
+    }
+
+    public int getY (int i) {
+        return i / width;
+    }
+
+    public byte getTile (int i) {
+        return tiles[i];
+    }
+
+    public boolean isOpen (int i) {
+        // You do not have to teleport if on a teleporter, you can pass through it
+        return tiles[i] == OPEN || tiles[i] == TELEPORT || isWeightedKind(tiles[i]);
+    }
+
+    public static boolean isWeightedKind (byte kind) {
+        return kind > WEIGHT_BASE && kind <= WEIGHT_LAST;
+    }
+
+    public boolean isWeighted (int i) {
+        return isWeightedKind(tiles[i]);
+    }
+
+    public int cost (int i) {
+        // Cost of walking onto the tile, 1 for everything but the weighted tiles
+        return isWeightedKind(tiles[i]) ? tiles[i] - WEIGHT_BASE : 1;
+    }
+
+    public int getMinCost () {
+        // Cheapest open or weighted tile, the start, end and teleporters always cost 1 so they are left out (1 if there are none)
+        return findCosts() >>> 8;
+    }
+
+    public int getMaxCost () {
+        return findCosts() & 0xFF;
+    }
+
+    public boolean hasWeights () {
+        return getMaxCost() > 1;
+    }
+
+    private int findCosts () {
+        // Two threads asking at once both work it out and write the same value, which is harmless
+        int known = costs;
+        if (known != -1) return known;
+        int min = 9, max = 1;
+        boolean any = false;
+        for (byte kind : tiles) {
+            if (kind == OPEN || isWeightedKind(kind)) {
+                int cost = kind == OPEN ? 1 : kind - WEIGHT_BASE;
+                min = Math.min(min, cost);
+                max = Math.max(max, cost);
+                any = true;
+            }
+        }
+        known = (any ? min : 1) << 8 | max;
+        costs = known;
+        return known;
+    }
+
+    public int neighbour (int i, int n) {
+        // n = 0 to 3 is LEFT, UP, RIGHT, DOWN and 4 is the TELEPORTER partner, -1 if there is no tile that way
+        // Walls are returned too, callers that walk check isWalkable themselves
+        int x = i % width;
+        switch (n) {
+            case 0: return x > 0 ? i - 1 : -1;
+            case 1: return i >= width ? i - width : -1;
+            case 2: return x < width-1 ? i + 1 : -1;
+            case 3: return i < tiles.length - width ? i + width : -1;
+            default: return tiles[i] == TELEPORT ? getPartner(i) : -1;
+        }
+    }
+
+    public boolean isWalkable (int i) {
+        // Anything but a wall, including the start and end
+        return tiles[i] != WALL;
+    }
+
+    public boolean isStart (int i) {
+        return tiles[i] == START;
+    }
+
+    public boolean isEnd (int i) {
+        return tiles[i] == END;
+    }
+
+    public boolean isTeleport (int i) {
+        return tiles[i] == TELEPORT;
+    }
+
+    public int getStart () {
+        return start;
+    }
+
+    public int getEnd () {
+        return end;
+    }
+
+    public int getTeleporterCount () {
+        return teleporterCount;
+    }
+
+    public int getTeleporter (int n) {
+        return teleporters[n];
+    }
+
+    public int getTeleporterLabel (int n) {
+        return teleporterLabels[n];
+    }
+
+    public int getPartner (int i) {
+        // The tile a teleporter jumps to, or -1 if there is nowhere to go
+        if (partnerCount == 0) return -1;
+        int slot = slot(i);
+        return partnerTiles[slot] == i ? partners[slot] : -1;
+    }
+
+    public boolean teleportersPaired () {
+        // Every label used by exactly two tiles
+        for (int count : labelCount) {
+            if (count != 0 && count != 2) return false;
+        }
+        return true;
+    }
+
+    public int getWidth () {
+        return width;
+    }
+
+    public int getHeight () {
+        return height;
+    }
+
+    public int size () {
+        return tiles.length;
+    }
+
+    public byte[] toText () {
+        // Same text format MazeLoader reads: width and height, then one line of #.o*@, 1-9 and teleporter letters per row
+        byte[] header = (width + " " + height + "\n").getBytes();
+        byte[] text = Arrays.copyOf(header, header.length + tiles.length + height);
+        int pos = header.length;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) text[pos++] = (byte) mark(tiles[y * width + x]);
+            text[pos++] = '\n';
+        }
+        // Every row is one longer than the width because of its newline
+        for (int t = 0; t < teleporterCount; t++) {
+            text[header.length + getY(teleporters[t]) * (width + 1) + getX(teleporters[t])] = (byte) labelMark(teleporterLabels[t]);
+        }
+        return text;
+    }
+
+    public long bytesUsed () {
+        return tiles.length + 4L * (teleporters.length + teleporterLabels.length + 3 * labelCount.length + partnerTiles.length + partners.length);
+    }
+}
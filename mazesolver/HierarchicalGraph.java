@@ -0,0 +1,369 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ Hierarchical pathfinding (HPA*): the grid is cut into square clusters and searched at cluster level first
+ Where two clusters touch, every run of open tiles along the border gets one or two entrances (a node on each side, one step apart)
+ Inside each cluster the distance between every pair of its nodes is worked out once, so the maze becomes a small graph of nodes
+ Each teleporter pair is just one more edge of that graph, costing 1 step like everywhere else
+ A query joins the start and end to the nodes of their clusters, searches the small graph, then only walks the tiles of the clusters on that route
+ Paths are shortest through the entrances, but can be a little longer than the true shortest path when it would cross a border somewhere else
+ **/
+
+public class HierarchicalGraph {
+    // Runs of open border tiles shorter than this get one entrance in the middle, longer ones get one at each end
+    private static final int SPLIT_RUN = 6;
+
+    private final Grid grid;
+    private final int width, height, clusterSize, clustersX, clustersY;
+
+    // Nodes are numbered cluster by cluster, the nodes of cluster c are clusterStart[c] up to clusterStart[c+1]
+    private int[] nodeTile, clusterStart;
+    // Edges of node n are edgeStart[n] up to edgeStart[n+1]
+    private int[] edgeStart, edgeTarget, edgeCost;
+
+    private HierarchicalGraph (Grid grid, int clusterSize) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.clusterSize = clusterSize;
+        this.clustersX = (width + clusterSize - 1) / clusterSize;
+        this.clustersY = (height + clusterSize - 1) / clusterSize;
+    }
+
+    public static HierarchicalGraph build (Grid grid, int clusterSize) {
+        return build(grid, clusterSize, null);
+    }
+
+    public static HierarchicalGraph build (Grid grid, int clusterSize, SearchWatcher watcher) {
+        // Building takes seconds on a huge maze, a watcher that cancels stops it after the current row of clusters or cluster
+        if (clusterSize < 2) throw new IllegalArgumentException("Clusters must be at least 2x2");
+        HierarchicalGraph graph = new HierarchicalGraph(grid, clusterSize);
+        graph.findEntrances(watcher);
+        graph.connectClusters(watcher);
+        return graph;
+    }
+
+    // Entrance tiles per cluster while building, and the edges between clusters as pairs of tiles
+    private int[][] clusterTiles;
+    private int[] clusterTileCount;
+    private int[] borderEdges = new int[64];
+    private int borderEdgeCount;
+
+    private void findEntrances (SearchWatcher watcher) {
+        int clusters = clustersX * clustersY;
+        clusterTiles = new int[clusters][4];
+        clusterTileCount = new int[clusters];
+
+        for (int cy = 0; cy < clustersY; cy++) {
+            SearchWatcher.check(watcher);
+            for (int cx = 0; cx < clustersX; cx++) {
+                int x0 = cx * clusterSize, y0 = cy * clusterSize;
+                int x1 = Math.min(width, x0 + clusterSize), y1 = Math.min(height, y0 + clusterSize);
+                // RIGHT border, column x1-1 against column x1
+                if (x1 < width) {
+                    int run = -1;
+                    for (int y = y0; y <= y1; y++) {
+                        boolean open = y < y1 && grid.isWalkable(grid.index(x1 - 1, y)) && grid.isWalkable(grid.index(x1, y));
+                        if (open && run == -1) run = y;
+                        if (!open && run != -1) {
+                            addEntrances(grid.index(x1 - 1, run), y - run, width, 1);
+                            run = -1;
+                        }
+                    }
+                }
+                // DOWN border, row y1-1 against row y1
+                if (y1 < height) {
+                    int run = -1;
+                    for (int x = x0; x <= x1; x++) {
+                        boolean open = x < x1 && grid.isWalkable(grid.index(x, y1 - 1)) && grid.isWalkable(grid.index(x, y1));
+                        if (open && run == -1) run = x;
+                        if (!open && run != -1) {
+                            addEntrances(grid.index(run, y1 - 1), x - run, 1, width);
+                            run = -1;
+                        }
+                    }
+                }
+            }
+        }
+
+        // TELEPORTER
+        // Every paired teleporter becomes a node wherever it is, joined to its partner by one step
+        for (int t = 0; t < grid.getTeleporterCount(); t++) {
+            int tile = grid.getTeleporter(t), partner = grid.getPartner(tile);
+            if (partner > tile) addBorderEdge(tile, partner);
+        }
+    }
+
+    private void addEntrances (int first, int length, int along, int across) {
+        // first is the first tile of the run on the near side, along steps down the run and across steps over the border
+        if (length < SPLIT_RUN) {
+            int tile = first + (length / 2) * along;
+            addBorderEdge(tile, tile + across);
+        } else {
+            addBorderEdge(first, first + across);
+            int last = first + (length - 1) * along;
+            addBorderEdge(last, last + across);
+        }
+    }
+
+    private void addBorderEdge (int a, int b) {
+        addNode(a);
+        addNode(b);
+        if (borderEdgeCount + 2 > borderEdges.length) borderEdges = Arrays.copyOf(borderEdges, borderEdges.length * 2);
+        borderEdges[borderEdgeCount++] = a;
+        borderEdges[borderEdgeCount++] = b;
+    }
+
+    private void addNode (int tile) {
+        // A tile can be an entrance on two borders (or a teleporter too), it is still only one node
+        int c = cluster(tile);
+        for (int n = 0; n < clusterTileCount[c]; n++) {
+            if (clusterTiles[c][n] == tile) return;
+        }
+        if (clusterTileCount[c] == clusterTiles[c].length) clusterTiles[c] = Arrays.copyOf(clusterTiles[c], clusterTileCount[c] * 2);
+        clusterTiles[c][clusterTileCount[c]++] = tile;
+    }
+
+    private void connectClusters (SearchWatcher watcher) {
+        int clusters = clustersX * clustersY;
+        clusterStart = new int[clusters + 1];
+        for (int c = 0; c < clusters; c++) clusterStart[c + 1] = clusterStart[c] + clusterTileCount[c];
+        int nodes = clusterStart[clusters];
+        nodeTile = new int[nodes];
+        for (int c = 0; c < clusters; c++) System.arraycopy(clusterTiles[c], 0, nodeTile, clusterStart[c], clusterTileCount[c]);
+        clusterTiles = null;
+        clusterTileCount = null;
+
+        // Distances inside each cluster only depend on that cluster's tiles, so clusters are done in parallel
+        // intra[c] holds, for every pair of its nodes, the distance (or -1 if they cannot reach each other inside the cluster)
+        int[][] intra = new int[clusters][];
+        IntStream.range(0, clusters).parallel().forEach(c -> {
+            SearchWatcher.check(watcher);
+            int count = clusterStart[c + 1] - clusterStart[c];
+            if (count == 0) return;
+            int[] distances = new int[count * count];
+            int[] dist = new int[clusterSize * clusterSize], parent = new int[clusterSize * clusterSize], queue = new int[clusterSize * clusterSize];
+            for (int a = 0; a < count; a++) {
+                localSearch(c, nodeTile[clusterStart[c] + a], -1, dist, parent, queue);
+                for (int b = 0; b < count; b++) distances[a * count + b] = dist[local(c, nodeTile[clusterStart[c] + b])];
+            }
+            intra[c] = distances;
+        });
+
+        // Count every node's edges first so they can all go in flat arrays
+        int[] degree = new int[nodes + 1];
+        for (int c = 0; c < clusters; c++) {
+            int count = clusterStart[c + 1] - clusterStart[c];
+            for (int a = 0; a < count; a++) {
+                for (int b = 0; b < count; b++) {
+                    if (a != b && intra[c][a * count + b] > 0) degree[clusterStart[c] + a]++;
+                }
+            }
+        }
+        for (int e = 0; e < borderEdgeCount; e += 2) {
+            degree[node(borderEdges[e])]++;
+            degree[node(borderEdges[e + 1])]++;
+        }
+        edgeStart = new int[nodes + 1];
+        for (int n = 0; n < nodes; n++) edgeStart[n + 1] = edgeStart[n] + degree[n];
+        edgeTarget = new int[edgeStart[nodes]];
+        edgeCost = new int[edgeStart[nodes]];
+        int[] fill = Arrays.copyOf(edgeStart, nodes);
+        for (int c = 0; c < clusters; c++) {
+            int count = clusterStart[c + 1] - clusterStart[c];
+            for (int a = 0; a < count; a++) {
+                for (int b = 0; b < count; b++) {
+                    if (a == b || intra[c][a * count + b] <= 0) continue;
+                    int from = clusterStart[c] + a;
+                    edgeTarget[fill[from]] = clusterStart[c] + b;
+                    edgeCost[fill[from]++] = intra[c][a * count + b];
+                }
+            }
+        }
+        for (int e = 0; e < borderEdgeCount; e += 2) {
+            int a = node(borderEdges[e]), b = node(borderEdges[e + 1]);
+            edgeTarget[fill[a]] = b;
+            edgeCost[fill[a]++] = 1;
+            edgeTarget[fill[b]] = a;
+            edgeCost[fill[b]++] = 1;
+        }
+        borderEdges = null;
+    }
+
+    public boolean search (SearchState state, int start, int end) {
+        return search(state, start, end, new PortalHeuristic(grid, end, false, state.getWatcher()));
+    }
+
+    boolean search (SearchState state, int start, int end, PortalHeuristic portals) {
+        int nodes = nodeTile.length;
+        // Two extra nodes for the start and the end, only this query knows about them
+        int startNode = nodes, endNode = nodes + 1;
+        int area = clusterSize * clusterSize;
+        int[] dist = new int[area], parent = new int[area], queue = new int[area];
+
+        // Costs from the start to the nodes of its cluster, and from the nodes of the end's cluster to the end
+        int startCluster = cluster(start), endCluster = cluster(end);
+        int[] fromStart = costs(state, startCluster, start, dist, parent, queue);
+        int direct = startCluster == endCluster ? dist[local(startCluster, end)] : -1;
+        int[] toEnd = costs(state, endCluster, end, dist, parent, queue);
+
+        // A* over the small graph, Manhattan distance (or through the teleporters, see PortalHeuristic) never overestimates a route
+        int[] cost = new int[nodes + 2], from = new int[nodes + 2];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        boolean[] done = new boolean[nodes + 2];
+        IndexedHeap open = new IndexedHeap(nodes + 2);
+        cost[startNode] = 0;
+        from[startNode] = -1;
+        open.add(startNode, portals.estimate(start));
+        while (!open.isEmpty()) {
+            int curr = open.poll();
+            if (curr == endNode) break;
+            done[curr] = true;
+            if (curr == startNode) {
+                int first = clusterStart[startCluster];
+                for (int n = 0; n < fromStart.length; n++) relax(open, cost, from, done, curr, first + n, fromStart[n], end, portals);
+                if (direct != -1) relax(open, cost, from, done, curr, endNode, direct, end, portals);
+                continue;
+            }
+            state.addExpanded(nodeTile[curr]);
+            for (int e = edgeStart[curr]; e < edgeStart[curr + 1]; e++) {
+                relax(open, cost, from, done, curr, edgeTarget[e], edgeCost[e], end, portals);
+            }
+            if (curr >= clusterStart[endCluster] && curr < clusterStart[endCluster + 1]) {
+                relax(open, cost, from, done, curr, endNode, toEnd[curr - clusterStart[endCluster]], end, portals);
+            }
+        }
+        if (cost[endNode] == Integer.MAX_VALUE) return false;
+
+        // Walk the route back from the end, turning every abstract step into tiles
+        int[] route = new int[16];
+        int routeSize = 0;
+        for (int n = endNode; n != -1; n = from[n]) {
+            if (routeSize == route.length) route = Arrays.copyOf(route, routeSize * 2);
+            route[routeSize++] = n == startNode ? start : n == endNode ? end : nodeTile[n];
+        }
+        int[] tiles = new int[cost[endNode] + 1];
+        int tileCount = 0;
+        tiles[tileCount++] = start;
+        for (int r = routeSize - 1; r > 0; r--) {
+            int a = route[r], b = route[r - 1];
+            if (a == b) continue;
+            if (grid.getPartner(a) == b || isNeighbour(a, b)) {
+                // Border crossing or teleporter jump, one step that is not inside any one cluster
+                tiles[tileCount++] = b;
+                continue;
+            }
+            // Refine: walk the tiles of this one cluster from b back to a, then add them in order
+            int c = cluster(a);
+            int expanded = localSearch(c, b, a, dist, parent, queue);
+            for (int q = 0; q < expanded; q++) state.addExpanded(queue[q]);
+            for (int t = parent[local(c, a)]; t != -1; t = parent[local(c, t)]) {
+                tiles[tileCount++] = t;
+            }
+        }
+        chain(state, tiles, tileCount);
+        return true;
+    }
+
+    private int[] costs (SearchState state, int cluster, int tile, int[] dist, int[] parent, int[] queue) {
+        // Distance from tile to every node of its cluster without leaving the cluster, -1 if there is no way
+        int expanded = localSearch(cluster, tile, -1, dist, parent, queue);
+        for (int q = 0; q < expanded; q++) state.addExpanded(queue[q]);
+        int first = clusterStart[cluster];
+        int[] costs = new int[clusterStart[cluster + 1] - first];
+        for (int n = 0; n < costs.length; n++) costs[n] = dist[local(cluster, nodeTile[first + n])];
+        return costs;
+    }
+
+    private void relax (IndexedHeap open, int[] cost, int[] from, boolean[] done, int curr, int next, int step, int end, PortalHeuristic portals) {
+        if (step < 0 || done[next]) return;
+        int c = cost[curr] + step;
+        if (c >= cost[next]) return;
+        cost[next] = c;
+        from[next] = curr;
+        int tile = next == nodeTile.length + 1 ? end : nodeTile[next];
+        open.add(next, c + portals.estimate(tile));
+    }
+
+    private void chain (SearchState state, int[] tiles, int tileCount) {
+        // Turn the tiles into parents and distances for findPath
+        // A route through the entrances can come back over a tile it has already used, the loop is cut out so the path never repeats a tile
+        int length = 0;
+        for (int i = 0; i < tileCount; i++) {
+            int tile = tiles[i];
+            if (!state.markSeen(tile) && state.distance[tile] < length && tiles[state.distance[tile]] == tile) {
+                length = state.distance[tile];
+            }
+            state.distance[tile] = length;
+            tiles[length++] = tile;
+        }
+        state.parent[tiles[0]] = -1;
+        for (int i = 1; i < length; i++) state.parent[tiles[i]] = tiles[i - 1];
+    }
+
+    private int localSearch (int cluster, int source, int target, int[] dist, int[] parent, int[] queue) {
+        // Breadth first search that never leaves the cluster, stops early once target is found (-1 to search the whole cluster)
+        // Distances and parents are kept by position inside the cluster, returns how many tiles were taken off the queue
+        int x0 = (cluster % clustersX) * clusterSize, y0 = (cluster / clustersX) * clusterSize;
+        int x1 = Math.min(width, x0 + clusterSize), y1 = Math.min(height, y0 + clusterSize);
+        Arrays.fill(dist, -1);
+        dist[local(cluster, source)] = 0;
+        parent[local(cluster, source)] = -1;
+        queue[0] = source;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int curr = queue[head++];
+            if (curr == target) break;
+            int x = grid.getX(curr), y = grid.getY(curr);
+            int d = dist[local(cluster, curr)] + 1;
+            for (int n = 0; n < 4; n++) {
+                int next;
+                switch (n) {
+                    case 0: next = x > x0 ? curr - 1 : -1; break;
+                    case 1: next = y > y0 ? curr - width : -1; break;
+                    case 2: next = x < x1 - 1 ? curr + 1 : -1; break;
+                    default: next = y < y1 - 1 ? curr + width : -1;
+                }
+                if (next == -1 || !grid.isWalkable(next) || dist[local(cluster, next)] != -1) continue;
+                dist[local(cluster, next)] = d;
+                parent[local(cluster, next)] = curr;
+                queue[tail++] = next;
+            }
+        }
+        return head;
+    }
+
+    private boolean isNeighbour (int a, int b) {
+        return Math.abs(grid.getX(a) - grid.getX(b)) + Math.abs(grid.getY(a) - grid.getY(b)) == 1;
+    }
+
+    private int cluster (int tile) {
+        return (grid.getY(tile) / clusterSize) * clustersX + grid.getX(tile) / clusterSize;
+    }
+
+    private int local (int cluster, int tile) {
+        // Position of a tile inside its cluster
+        return (grid.getY(tile) - (cluster / clustersX) * clusterSize) * clusterSize + grid.getX(tile) - (cluster % clustersX) * clusterSize;
+    }
+
+    private int node (int tile) {
+        int c = cluster(tile);
+        for (int n = clusterStart[c]; n < clusterStart[c + 1]; n++) {
+            if (nodeTile[n] == tile) return n;
+        }
+        return -1;
+    }
+
+    public int getNodeCount () {
+        return nodeTile.length;
+    }
+
+    public int getEdgeCount () {
+        return edgeTarget.length;
+    }
+
+    public long bytesUsed () {
+        return 4L * (nodeTile.length + clusterStart.length + edgeStart.length + edgeTarget.length + edgeCost.length);
+    }
+}
@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+/**
+ Keeps the shortest path between one start and one end up to date while tiles are opened and closed (Lifelong Planning A*, LPA*)
+ Every tile keeps its distance from the start (g) and the best distance its neighbours offer (rhs), tiles where the two differ are queued
+ After an edit only the changed tile and its neighbours are looked at again, and fixing them only spreads as far as distances really change
+ So a door opening or closing somewhere costs about the number of tiles whose distance it changes, not the size of the maze
+ Edits have to go through setOpen so the planner hears about them, the maze is changed too so normal solves see the same tiles
+ **/
+
+public class IncrementalPlanner {
+    // Half of the int range so adding a step to "unreachable" can never overflow
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final Maze maze;
+    private final Grid grid;
+    private final int start, end;
+    private final int[] g, rhs;
+    private final KeyHeap queue;
+    private final PortalHeuristic portals;
+    private int expanded;
+
+    public IncrementalPlanner (Maze maze, int start, int end) {
+        this.maze = maze;
+        this.grid = maze.getGrid();
+        if (!grid.isWalkable(start) || !grid.isWalkable(end)) throw new IllegalArgumentException("Start and end must not be walls");
+        this.start = start;
+        this.end = end;
+        g = new int[grid.size()];
+        rhs = new int[grid.size()];
+        Arrays.fill(g, INFINITY);
+        Arrays.fill(rhs, INFINITY);
+        queue = new KeyHeap(grid.size());
+        portals = maze.portalTable(end, false, 1, 1, 0, null);
+
+        // Only the start is known to begin with, the first plan is a normal A* search from it
+        rhs[start] = 0;
+        queue.set(start, key(start));
+    }
+
+    public void setOpen (int tile, boolean open) {
+        // Doors only: walls become open tiles and open tiles become walls, the start, end and teleporters stay as they are
+        maze.setOpen(tile, open);
+        // The tile's own distance and every neighbour's best offer may have changed
+        update(tile);
+        for (int n = 0; n < 5; n++) {
+            int next = grid.neighbour(tile, n);
+            if (next != -1) update(next);
+        }
+    }
+
+    public Solution plan () {
+        long time = System.nanoTime();
+        expanded = 0;
+        repair();
+        boolean found = g[end] < INFINITY;
+        int[] path = found ? path() : null;
+        return new Solution(found, path, expanded, System.nanoTime() - time);
+    }
+
+    private void repair () {
+        // Fix queued tiles in order until the end's distance is settled and nothing waiting could make it shorter
+        while (!queue.isEmpty() && (queue.peekKey() < key(end) || rhs[end] != g[end])) {
+            int curr = queue.poll();
+            expanded++;
+            if (g[curr] > rhs[curr]) {
+                // Got shorter: settle it and let the neighbours use it
+                g[curr] = rhs[curr];
+            } else {
+                // Got longer (a wall appeared on its way): forget it and let it and the neighbours find their way again
+                g[curr] = INFINITY;
+                update(curr);
+            }
+            for (int n = 0; n < 5; n++) {
+                int next = grid.neighbour(curr, n);
+                if (next != -1) update(next);
+            }
+        }
+    }
+
+    private void update (int tile) {
+        if (tile != start) {
+            // Best a neighbour can offer, walls never offer anything
+            int best = INFINITY;
+            if (grid.isWalkable(tile)) {
+                for (int n = 0; n < 5; n++) {
+                    int prev = grid.neighbour(tile, n);
+                    if (prev != -1 && grid.isWalkable(prev)) best = Math.min(best, g[prev] + 1);
+                }
+            }
+            rhs[tile] = best;
+        }
+        if (g[tile] != rhs[tile]) queue.set(tile, key(tile)); else queue.remove(tile);
+    }
+
+    private long key (int tile) {
+        // Smaller estimated total first, then smaller distance from the start, packed into one long so the heap compares once
+        int distance = Math.min(g[tile], rhs[tile]);
+        return ((long) Math.min(INFINITY, distance + heuristic(tile)) << 32) | distance;
+    }
+
+    private int[] path () {
+        // From the end, step to whichever neighbour is one closer to the start, same order as findPath (end first)
+        int[] path = new int[g[end] + 1];
+        int curr = end;
+        path[0] = end;
+        for (int i = 1; i < path.length; i++) {
+            int best = -1;
+            for (int n = 0; n < 5; n++) {
+                int prev = grid.neighbour(curr, n);
+                if (prev != -1 && grid.isWalkable(prev) && g[prev] == g[curr] - 1) {
+                    best = prev;
+                    break;
+                }
+            }
+            if (best == -1) throw new IllegalStateException("Path does not lead back to the start");
+            path[i] = curr = best;
+        }
+        return path;
+    }
+
+    private int heuristic (int i) {
+        // Same as jump point search: straight to the end, or through the teleporters if that is shorter
+        return portals.estimate(i);
+    }
+
+    public long bytesUsed () {
+        return 4L * (g.length + rhs.length) + queue.bytesUsed();
+    }
+
+    private static class KeyHeap {
+        // Like IndexedHeap but with long keys that can go up as well as down, and tiles can be taken out from anywhere
+        private final long[] key;
+        private final int[] pos;
+        private int[] heap = new int[16];
+        private int size = 0;
+
+        KeyHeap (int tiles) {
+            key = new long[tiles];
+            pos = new int[tiles];
+            Arrays.fill(pos, -1);
+        }
+
+        boolean isEmpty () {
+            return size == 0;
+        }
+
+        long peekKey () {
+            return key[heap[0]];
+        }
+
+        void set (int tile, long priority) {
+            if (pos[tile] == -1) {
+                if (size == heap.length) heap = Arrays.copyOf(heap, size + (size >> 1));
+                key[tile] = priority;
+                siftUp(size++, tile);
+            } else {
+                key[tile] = priority;
+                siftUp(pos[tile], tile);
+                siftDown(pos[tile], tile);
+            }
+        }
+
+        int poll () {
+            int result = heap[0];
+            remove(result);
+            return result;
+        }
+
+        void remove (int tile) {
+            int k = pos[tile];
+            if (k == -1) return;
+            pos[tile] = -1;
+            int last = heap[--size];
+            if (k == size) return;
+            // Put the last tile in the hole, then move it whichever way it needs to go
+            siftUp(k, last);
+            siftDown(pos[last], last);
+        }
+
+        private void siftUp (int k, int tile) {
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                int e = heap[parent];
+                if (key[tile] >= key[e]) break;
+                heap[k] = e;
+                pos[e] = k;
+                k = parent;
+            }
+            heap[k] = tile;
+            pos[tile] = k;
+        }
+
+        private void siftDown (int k, int tile) {
+            int half = size >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int c = heap[child];
+                int right = child + 1;
+                if (right < size && key[c] > key[heap[right]]) c = heap[child = right];
+                if (key[tile] <= key[c]) break;
+                heap[k] = c;
+                pos[c] = k;
+                k = child;
+            }
+            heap[k] = tile;
+            pos[tile] = k;
+        }
+
+        long bytesUsed () {
+            return 8L * key.length + 4L * (pos.length + heap.length);
+        }
+    }
+}
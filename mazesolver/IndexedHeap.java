@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ Binary min heap of tile indices that remembers where every tile is inside the heap
+ Knowing the position means a tile's priority can be lowered in place when a better route to it is found
+ Sifts the same way PriorityQueue<Square> did so tiles with equal priority come out in the same order, without boxing anything
+ **/
+
+public class IndexedHeap implements OpenSet {
+    private final int[] key, pos;
+    private int[] heap;
+    private int size = 0;
+    // Counted for SolveMetrics, a couple of increments per add is all they cost
+    private int pushes = 0, peakSize = 0;
+
+    public IndexedHeap (int tiles) {
+        key = new int[tiles];
+        // pos[tile] is the index of the tile inside heap, -1 when it is not in the heap
+        pos = new int[tiles];
+        Arrays.fill(pos, -1);
+        heap = new int[16];
+    }
+
+    public boolean isEmpty () {
+        return size == 0;
+    }
+
+    public boolean contains (int tile) {
+        return pos[tile] != -1;
+    }
+
+    public int size () {
+        return size;
+    }
+
+    public void add (int tile, int priority) {
+        if (pos[tile] != -1) {
+            // Already waiting, only ever move it closer to the front
+            if (priority < key[tile]) {
+                key[tile] = priority;
+                siftUp(pos[tile], tile);
+                pushes++;
+            }
+            return;
+        }
+        if (size == heap.length) heap = Arrays.copyOf(heap, size + (size >> 1));
+        key[tile] = priority;
+        siftUp(size++, tile);
+        pushes++;
+        if (size > peakSize) peakSize = size;
+    }
+
+    public int poll () {
+        int result = heap[0];
+        pos[result] = -1;
+        int n = --size;
+        int x = heap[n];
+        if (n > 0) siftDown(0, x, n);
+        return result;
+    }
+
+    public void clear () {
+        for (int i = 0; i < size; i++) pos[heap[i]] = -1;
+        size = 0;
+        pushes = 0;
+        peakSize = 0;
+    }
+
+    public int pushes () {
+        return pushes;
+    }
+
+    public int peakSize () {
+        return peakSize;
+    }
+
+    private void siftUp (int k, int tile) {
+        // Move parents down until the tile fits
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            int e = heap[parent];
+            if (Integer.compare(key[tile], key[e]) >= 0) break;
+            heap[k] = e;
+            pos[e] = k;
+            k = parent;
+        }
+        heap[k] = tile;
+        pos[tile] = k;
+    }
+
+    private void siftDown (int k, int tile, int n) {
+        // Move the smaller child up until the tile fits
+        int half = n >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if (right < n && Integer.compare(key[c], key[heap[right]]) > 0) c = heap[child = right];
+            if (Integer.compare(key[tile], key[c]) <= 0) break;
+            heap[k] = c;
+            pos[c] = k;
+            k = child;
+        }
+        heap[k] = tile;
+        pos[tile] = k;
+    }
+
+    public String name () {
+        return "indexed heap";
+    }
+
+    public long bytesUsed () {
+        return 4L * (key.length + pos.length + heap.length);
+    }
+}
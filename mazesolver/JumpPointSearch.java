@@ -0,0 +1,149 @@
+/**
+ Jump Point Search (JPS) for the 4-connected grid with every step costing 1
+ On open areas there are lots of equally short paths that only differ in where they turn, plain A* expands all of them
+ JPS only stops ("jumps") to tiles where a path has to turn because of a wall, so most open tiles are never put in the queue
+ Paths are taken horizontally first, a vertical jump stops wherever a horizontal jump from it would find something
+ Teleporters and the end are always jump points so the teleporter pair works like a forced neighbour
+ **/
+
+public class JumpPointSearch {
+    // Which way the search was going when it reached a tile, NONE means look in every direction
+    private static final byte NONE = 0, LEFT = 1, UP = 2, RIGHT = 3, DOWN = 4;
+
+    private final Grid grid;
+    private final int width, height;
+    private byte[] arrival;
+    private int end;
+    private PortalHeuristic portals;
+
+    public JumpPointSearch (Grid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+    }
+
+    public boolean search (SearchState state, OpenSet queue, int start, int end) {
+        return search(state, queue, start, end, new PortalHeuristic(grid, end, false, state.getWatcher()));
+    }
+
+    boolean search (SearchState state, OpenSet queue, int start, int end, PortalHeuristic portals) {
+        // Arrival directions are kept in the search state so they are reused by the next search instead of allocated again
+        this.arrival = state.arrival();
+        this.end = end;
+        this.portals = portals;
+
+        queue.clear();
+        queue.add(start, heuristic(start));
+        state.distance[start] = 0;
+        state.parent[start] = -1;
+        state.markSeen(start);
+        arrival[start] = NONE;
+
+        while (!queue.isEmpty()) {
+            int curr = queue.poll();
+            // Check when taken off the queue rather than when found, jump points can be found by a longer route first
+            if (curr == end) {
+                fillPath(state, start, end);
+                return true;
+            }
+            state.addExpanded(curr);
+
+            int x = grid.getX(curr);
+            int y = grid.getY(curr);
+            byte dir = arrival[curr];
+
+            // Moving horizontally only needs to look up, down and straight on, anything behind is reached better some other way
+            if (dir == NONE || dir == LEFT || dir == RIGHT) {
+                relax(state, queue, curr, jumpVertical(x, y, -1), UP);
+                relax(state, queue, curr, jumpVertical(x, y, 1), DOWN);
+            }
+            if (dir == NONE || dir == UP || dir == DOWN) {
+                relax(state, queue, curr, jumpHorizontal(x, y, -1), LEFT);
+                relax(state, queue, curr, jumpHorizontal(x, y, 1), RIGHT);
+            }
+            if (dir == LEFT || dir == RIGHT) relax(state, queue, curr, jumpHorizontal(x, y, dir == LEFT ? -1 : 1), dir);
+            if (dir == UP || dir == DOWN) relax(state, queue, curr, jumpVertical(x, y, dir == UP ? -1 : 1), dir);
+
+            // TELEPORTER
+            // Jumping to the other teleporter is one step, from there every direction has to be tried again
+            if (grid.isTeleport(curr)) {
+                relax(state, queue, curr, grid.getPartner(curr), NONE);
+            }
+        }
+        return false;
+    }
+
+    private void relax (SearchState state, OpenSet queue, int curr, int next, byte dir) {
+        if (next == -1) return;
+        int distance = state.distance[curr] + (dir == NONE ? 1 : steps(curr, next));
+        if (state.markSeen(next)) {
+            state.parent[next] = curr;
+            state.distance[next] = distance;
+            arrival[next] = dir;
+            queue.add(next, distance + heuristic(next));
+        } else if (distance < state.distance[next] && queue.contains(next)) {
+            // Shorter way to a jump point that is still waiting (decrease-key)
+            state.parent[next] = curr;
+            state.distance[next] = distance;
+            arrival[next] = dir;
+            queue.add(next, distance + heuristic(next));
+        }
+    }
+
+    private int jumpHorizontal (int x, int y, int dx) {
+        // Walk along the row until hitting a wall (-1) or a tile where the path could need to turn
+        while (true) {
+            x += dx;
+            if (!walkable(x, y)) return -1;
+            int i = grid.index(x, y);
+            if (i == end || grid.isTeleport(i)) return i;
+            // Forced neighbour: a wall just behind us above or below has opened up, so turning here may be the only short way
+            if ((walkable(x, y - 1) && !walkable(x - dx, y - 1)) || (walkable(x, y + 1) && !walkable(x - dx, y + 1))) return i;
+        }
+    }
+
+    private int jumpVertical (int x, int y, int dy) {
+        while (true) {
+            y += dy;
+            if (!walkable(x, y)) return -1;
+            int i = grid.index(x, y);
+            if (i == end || grid.isTeleport(i)) return i;
+            if ((walkable(x - 1, y) && !walkable(x - 1, y - dy)) || (walkable(x + 1, y) && !walkable(x + 1, y - dy))) return i;
+            // Paths turn from vertical to horizontal, so stop anywhere a horizontal jump would find a jump point
+            if (jumpHorizontal(x, y, -1) != -1 || jumpHorizontal(x, y, 1) != -1) return i;
+        }
+    }
+
+    private boolean walkable (int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return grid.isWalkable(grid.index(x, y));
+    }
+
+    private int steps (int a, int b) {
+        return Math.abs(grid.getX(a) - grid.getX(b)) + Math.abs(grid.getY(a) - grid.getY(b));
+    }
+
+    private int heuristic (int i) {
+        // Manhattan distance never overestimates on a 4-connected grid, going through the teleporters might be shorter though
+        // so take the smaller of walking straight there and walking to any teleporter and on from there
+        return portals.estimate(i);
+    }
+
+    private void fillPath (SearchState state, int start, int end) {
+        // Jump points are joined by straight lines, so fill in the tiles between them so findPath can step back one tile at a time
+        int t = end;
+        while (t != start) {
+            int p = state.parent[t];
+            if (arrival[t] != NONE) {
+                int step = grid.getX(p) < grid.getX(t) ? -1 : grid.getX(p) > grid.getX(t) ? 1 : (grid.getY(p) < grid.getY(t) ? -width : width);
+                int cur = t;
+                while (cur != p) {
+                    state.parent[cur] = cur + step;
+                    state.distance[cur + step] = state.distance[cur] - 1;
+                    cur += step;
+                }
+            }
+            t = p;
+        }
+    }
+}
@@ -1,80 +1,52 @@
-import java.util.*;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Main {
-    public static void main(String[] args) {
-        Scanner sc = new Scanner(System.in);
-
-        System.out.println("Enter width:");
-        int width = sc.nextInt();
-        System.out.println("Enter height:");
-        int height = sc.nextInt();
-        System.out.println(width + " " + height);
-
-        // Maze will be stored in 2D array of Squares, each representing one tile
-        // [height][width] so is more intuitive: increases first horizontally
-        Square[][] mazeArr = new Square[height][width];
-
-        // Track start and end now so we do not have to loop through whole thing to find them later
-        Square start = null, end = null;
-
-        // Store teleporter locations if the maze has them
-        ArrayList<Square> teleporters = new ArrayList<>();
-
-        System.out.println("Now enter your maze:");
-        int count = 0;
-        // While loop instead of for loop so incorrect inputs can be entered without increasing the counter
-        while (count < height) {
-            String input = sc.next();
-            if (validInput(input, width)) {
-                // Need to make into char array so we can process each one individually and make into different squares
-                char[] inputArr = input.toCharArray();
-                for (int i = 0; i < width; i++) {
-                    // Create new Square object for every tile with correct x,y positions
-                    // x=0, y=0 is top left corner
-                    Square tile = new Square(inputArr[i], i, count);
-
-                    // Make sure maze only has one start and one end
-                    if (tile.isStart()) {
-                        if (start == null) {
-                            start = tile;
-                        } else {
-                            throw new IllegalArgumentException("Valid mazes can only have one start!");
-                        }
-                    }
-                    if (tile.isEnd()) {
-                        if (end == null) {
-                            end = tile;
-                        } else {
-                            throw new IllegalArgumentException("Valid mazes can only have one end!");
-                        }
-                    }
-
-                    if (tile.isTeleport()) {
-                        teleporters.add(tile);
-                    }
+    public static void main(String[] args) throws IOException {
+        // Maze will be stored in a flat Grid, one byte per tile, filled straight from the input
+        // Start, end and teleporters are tracked while loading so we do not have to loop through whole thing to find them later
+        // Usage: java Main [maze file] [--solution file] [--runs] [--teleport-cost 1] [--quiet]
+        // --solution writes the solved maze to a file instead of the console, --runs writes only the path's moves
+        // --teleport-cost is what jumping between the teleporters costs in weighted A*
+        // --quiet leaves out the console metrics (tiles searched, timings), they are still on JMX and in Flight Recorder, the result is always printed
+        String mazeFile = null;
+        Path solutionFile = null;
+        boolean runsOnly = false;
+        int teleportCost = 1;
+        boolean quiet = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--solution")) solutionFile = Path.of(args[++i]);
+            else if (args[i].equals("--runs")) runsOnly = true;
+            else if (args[i].equals("--teleport-cost")) teleportCost = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--quiet")) quiet = true;
+            else mazeFile = args[i];
+        }
 
-                    mazeArr[count][i] = tile;
-                }
-                count++;
-            } else {
-                // Don't error if invalid line input given so allows so copypasting file contents which may have had other text or comments
-                System.out.println("Valid mazes can must have " + width + " characters per line and only consist of # (Wall), . (Open), o (Start), * (End), @ (Teleporter)");
-            }
+        // Every solve's metrics go to JMX, and to the console unless asked not to
+        if (!quiet) Metrics.addSink(new ConsoleSink());
+        SolverStats.register();
+
+        Grid grid;
+        long loadTime = System.nanoTime();
+        if (mazeFile != null) {
+            // Maze files are memory mapped so huge mazes load without going through a Scanner
+            grid = MazeLoader.load(Path.of(mazeFile));
+        } else {
+            System.out.println("Enter width and height, then your maze:");
+            grid = MazeLoader.read(System.in);
         }
+        loadTime = System.nanoTime() - loadTime;
+        System.out.println(grid.getWidth() + " " + grid.getHeight());
 
         // Create the maze object with all information needed to find solution
-        Maze maze = new Maze(mazeArr, start, end, width, height, teleporters);
+        Maze maze = new Maze(grid);
+        // Typing the maze in counts as loading too, so only a file's load time is worth reporting
+        maze.setSource(mazeFile != null ? mazeFile : "stdin", mazeFile != null ? loadTime : -1);
         maze.validMaze();
+        maze.setOutput(solutionFile, runsOnly);
+        maze.setTeleportCost(teleportCost);
 
         // Create GUI with the maze, allows it to start the maze solve and draw it
-        new GUI(width, height, maze);
-
-        // Stop memory leak by closing scanners
-        sc.close();
-    }
-
-    public static boolean validInput (String s, int width) {
-        // Regex is checking if all characters are part of set [#.ox@]
-        return s.length() == width && s.matches("^[#.o*@]+$");
+        new GUI(grid.getWidth(), grid.getHeight(), maze);
     }
-}
\ No newline at end of file
+}
@@ -1,233 +1,594 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 public class Maze {
-    private Square[][] maze;
-    private Square start, end;
-    private int width, height;
-    private ArrayList<Square> teleporters, seenOrder;
+    private final Grid grid;
+    private final int width, height;
+    private int[] seenOrder;
+    private ComponentIndex components;
+    private HierarchicalGraph hierarchy;
+    // Teleporter tables for the heuristics, by end and the costs they were built with, only the most recently used PORTAL_TABLES are kept
+    // Building one takes teleporters squared steps, far longer than a search on a maze full of portals, so queries to the same end share it
+    private static final int PORTAL_TABLES = 64;
+    private final LinkedHashMap<List<Integer>, PortalHeuristic> portalTables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<List<Integer>, PortalHeuristic> eldest) {
+            return size() > PORTAL_TABLES;
+        }
+    };
+    // What jumping between the teleporters costs in weighted search, every other mode counts it as 1 step
+    private int teleportCost = 1;
+
+    // Where solveMaze writes the solution, System.out unless a file was given, and whether to write just the moves
+    private Path outputFile;
+    private boolean runsOnly;
+
+    // Name and load time of the maze for SolveMetrics, load and validate times only go with the first solve so repeated queries do not count them again
+    private String source = "maze";
+    private long loadNanos = -1, validateNanos = -1;
+    private final AtomicBoolean loadReported = new AtomicBoolean();
+
+    // Search state is the only thing a query writes to, so it is kept in a pool and reused instead of the maze being rebuilt
+    // Several threads can query at once, each takes its own state from the pool
+    private final ArrayDeque<SearchState> statePool = new ArrayDeque<>();
 
     public Maze (Square[][] maze, Square start, Square end, int width, int height, ArrayList<Square> teleporters) {
-        this.maze = maze;
-        this.start = start;
-        this.end = end;
-        this.width = width;
-        this.height = height;
-        this.teleporters = teleporters;
+        // Squares are only needed to read the maze in, the solver works on the flat Grid
+        this(Grid.fromSquares(maze, width, height));
+    }
+
+    public Maze (Grid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
     }
 
     public void validMaze () {
+        long time = System.nanoTime();
         // Make sure maze has both a start and end
-        if (start == null || end == null) throw new IllegalArgumentException("Valid mazes must have a start and an end!");
-        // There can only be 0 or 2 teleporters
-        if (!(teleporters.size() == 0 || teleporters.size() == 2)) throw new IllegalArgumentException("Valid mazes only have 0 or 2 teleporters!");
+        if (grid.getStart() == -1 || grid.getEnd() == -1) throw new IllegalArgumentException("Valid mazes must have a start and an end!");
+        // Teleporters come in pairs, every label ('@' or a letter) has to be used by exactly 2 tiles
+        if (!grid.teleportersPaired()) throw new IllegalArgumentException("Valid mazes have exactly 2 teleporters with each label!");
+        validateNanos = System.nanoTime() - time;
+    }
+
+    public void setSource (String source, long loadNanos) {
+        // Where the maze came from and how long reading it took, both only used for SolveMetrics
+        this.source = source;
+        this.loadNanos = loadNanos;
     }
 
-    private int chooseHeuristic(Square next, char mode, int count) {
+    private SolveMetrics newMetrics (char hMode) {
+        // null when no sink and no recording wants the metrics, then the solve skips every bit of measuring
+        if (!Metrics.isActive()) return null;
+        SolveMetrics metrics = new SolveMetrics(source, hMode, width, height);
+        // Only one solve gets the load times, without taking a lock on every query
+        if (!loadReported.get() && loadReported.compareAndSet(false, true)) {
+            metrics.setPhase(SolveMetrics.LOAD, loadNanos);
+            metrics.setPhase(SolveMetrics.VALIDATE, validateNanos);
+        }
+        return metrics;
+    }
+
+    private int chooseHeuristic(int next, PortalHeuristic portals, char mode, int count) {
         /*
         mode = 'e': Euclidean distance from current tile to end
         mode = 'm': Manhattan distance from current tile to end
         mode = 'p': Proximity sensor -> Manhattan distance if lower than 8, 8 if higher
+        All three also look at going through the teleporters (see PortalHeuristic), so with distance to start they still find the shortest path
+        mode = 'j': Jump point search, see JumpPointSearch (never gets here)
+        mode = 'b': Bidirectional breadth first search, see BidirectionalSearch (never gets here)
+        mode = 'f': Fork-join parallel breadth first search, see ParallelBfs (never gets here)
+        mode = 'h': Hierarchical search over clusters of tiles, see HierarchicalGraph (never gets here)
+        mode = 'w': A* with weighted tiles costing their digit, see WeightedSearch (never gets here)
         anything else: 0
          */
-        int diffX = Math.abs(next.getX() - end.getX());
-        int diffY = Math.abs(next.getY() - end.getY());
-        if (mode == 'e') {
-            return (int) Math.sqrt(Math.pow(diffX, 2) + Math.pow(diffY, 2));
-        } else if (mode == 'm') {
-            return diffX + diffY;
+        if (mode == 'e' || mode == 'm') {
+            // The heuristic was built measuring in straight lines or Manhattan steps to match the mode
+            return portals.estimate(next);
         } else if (mode == 'p') {
-            return Math.min(diffX + diffY, 8);
+            return Math.min(portals.estimate(next), 8);
         } else {
             return count;
         }
     }
 
     public void solveMaze (char hMode, boolean addDistance) {
-        // PriorityQueue allows use of heuristics to guess which tiles will lead to the end, and therefore should be explored earlier
-        PriorityQueue<Square> queue = new PriorityQueue<>();
-        queue.add(start);
-        start.setDistance(0);
-
-        // HashSet since inserting into it is O(1) rather than ArrayList.contains() being O(n)
-        HashSet<Square> seen = new HashSet<>();
-
-        // Tracking this so we can fake animation on the GUI by drawing one square every x seconds
-        ArrayList<Square> seenOrder = new ArrayList<>();
-        seen.add(start);
+        // No queue given, the search uses the one kept with its pooled state like solve() does
+        solveMaze(hMode, addDistance, null, null);
+    }
 
-        boolean pathFound = false;
+    public void solveMaze (char hMode, boolean addDistance, OpenSet queue) {
+        solveMaze(hMode, addDistance, queue, null);
+    }
 
+    public void solveMaze (char hMode, boolean addDistance, SearchWatcher watcher) {
+        solveMaze(hMode, addDistance, null, watcher);
+    }
 
+    public void solveMaze (char hMode, boolean addDistance, OpenSet queue, SearchWatcher watcher) {
         /*
-        If a heuristic mode is selected, this may not try all values leading to potentially not finding the shortest path
+        If a heuristic mode is selected without the distance to start, this may not try all values leading to potentially not finding the shortest path
         Example:
         .............
         .@.o.....*.@.
         .............
-        with any heuristic mode selected it will go across rather than using the teleporter
+        The heuristics know the teleporter gets to the end in 1 step, but without the distance the search can still wander off the shortest path
         */
 
-        if (!teleporters.isEmpty() && new HashSet<>(Arrays.asList('e', 'm', 'p')).contains(hMode)) {
-            System.out.println("Attention! Your maze has teleporters and you have selected a heuristic. Keep in mind this may result in the shortest path not being found");
+        if (grid.getTeleporterCount() > 0 && !addDistance && new HashSet<>(Arrays.asList('e', 'm', 'p')).contains(hMode)) {
+            System.out.println("Attention! Your maze has teleporters and you have selected a heuristic without distance to the start. Keep in mind this may result in the shortest path not being found");
+        }
+        if (grid.hasWeights() && hMode != 'w') {
+            System.out.println("Attention! Your maze has weighted tiles and this mode counts every step as 1. Use weighted A* to take the costs into account");
+        }
+        if (hMode == 'h') {
+            System.out.println("Attention! Hierarchical search only crosses between clusters at their entrances, so the path may be a few tiles longer than the shortest");
         }
 
-        int count = 0;
-        // If queue is empty and path is not found, that means there is no possible path to end
-        while (!queue.isEmpty()) {
-            // Get first element of queue and remove it
-            Square curr = queue.poll();
-            int currX = curr.getX();
-            int currY = curr.getY();
+        // All search state lives in flat arrays indexed by tile instead of inside Square objects
+        SolveMetrics metrics = newMetrics(hMode);
+        SearchState state = acquireState();
+        long allocated = metrics != null ? SolveMetrics.allocatedBytes() : -1;
+        // A null queue means the caller has none of its own, the pooled state's is reused instead of allocating one per solve
+        if (queue == null) queue = state.queue(hMode);
+        long time = metrics != null ? System.nanoTime() : 0;
+        boolean pathFound;
+        // A watcher sees the expanded tiles while the search runs, a cancelled search throws and its state still goes back to the pool
+        state.watch(watcher);
+        try {
+            pathFound = search(state, queue, hMode, addDistance);
+            if (watcher != null) state.report();
+        } catch (RuntimeException e) {
+            state.watch(null);
+            releaseState(state);
+            throw e;
+        }
+        state.watch(null);
+        if (metrics != null) metrics.setPhase(SolveMetrics.SEARCH, System.nanoTime() - time);
 
-            // ArrayList preserves order so this will show the searched squares in the correct order
-            seenOrder.add(curr);
+        if (pathFound) {
+            if (metrics != null) time = System.nanoTime();
+            long[] onPath = PathWriter.newBitmap(grid.size());
+            int[] path = findPath(state, grid.getStart(), grid.getEnd(), onPath);
+            if (metrics != null) {
+                metrics.setPhase(SolveMetrics.BACKTRACK, System.nanoTime() - time);
+                // path includes the start so subtract 1 to not include that
+                metrics.setResult(true, path.length-1, state.cost);
+            }
+            // The result is printed whatever sinks there are (even with --quiet), the length still comes before the solution
+            System.out.println("The solution was " + (path.length-1) + " tiles long! (includes end)");
+            if (hMode == 'w') System.out.println("Walking it costs " + state.cost);
+            if (metrics != null) time = System.nanoTime();
+            writeSolution(path, onPath);
+            if (metrics != null) metrics.setPhase(SolveMetrics.RENDER, System.nanoTime() - time);
+        } else {
+            if (metrics != null) metrics.setResult(false, -1, -1);
+            System.out.println("No path exists");
+        }
 
-            // Count has no functional use except to see if the heuristics are working better than having none
-            count++;
+        // Printing the tiles searched, times and so on is up to the sinks (ConsoleSink prints what used to be printed here)
+        // A queue handed in for a mode that never uses it is not counted either
+        if (metrics != null) finishMetrics(metrics, state, OpenSet.usedBy(hMode) ? queue : null, allocated);
+        this.seenOrder = state.getOrder();
+        releaseState(state);
+    }
 
-            /*
-            Checks to make sure that will not cause ArrayIndexOutOfBounds exception, then get cells on one side of current one
-            Make sure never have seen cell before to stop infinite loops and then add to queue and add to set of seen squares
-            Set each squares adj to be which square led to it and the distance to adj square plus 1
-            A* Algorithm: Set the squares heuristic value to be the distance from start plus the estimated distance to end
-            */
+    private void finishMetrics (SolveMetrics metrics, SearchState state, OpenSet queue, long allocated) {
+        // queue is null for the modes that have no open set, then neither its counters nor its memory are reported
+        metrics.setSearch(state.getExpanded(), queue);
+        // Arrays have a fixed size per tile so the memory used can be worked out exactly rather than guessed from the heap
+        long bytesUsed = grid.bytesUsed() + state.bytesUsed() + (queue != null ? queue.bytesUsed() : 0);
+        metrics.setMemory(allocated == -1 ? -1 : SolveMetrics.allocatedBytes() - allocated, bytesUsed);
+        Metrics.publish(metrics);
+    }
 
-            // LEFT
-            if (currX > 0) {
-                Square next = maze[currY][currX-1];
-                // Stop searching maze once a path has been found
-                if (next.isEnd()) {
-                    next.setAdj(curr);
-                    pathFound = true;
-                    break;
-                }
-                if (next.isOpen() && seen.add(next)) {
-                    next.setAdj(curr);
-                    next.setDistance(curr.getDistance()+1);
-                    /*
-                     If the option to use distance to start is selected on GUI,
-                     A* algorithm is f(x) = g(x) + h(x) where g(x) is distance to start, h(x) is estimated distance to end
-                     I find it works much better most of the time without adding h(x) so I added an option for that
-                     */
-                    next.setHeuristic(addDistance ? chooseHeuristic(next, hMode, count) + next.getDistance() : chooseHeuristic(next, hMode, count));
-                    queue.add(next);
+    public Solution solve (int start, int end, char hMode, boolean addDistance) {
+        // One query between any two walkable tiles, nothing in the maze is changed so this can be called again and again, from any thread
+        if (!grid.isWalkable(start) || !grid.isWalkable(end)) throw new IllegalArgumentException("Start and end must not be walls");
+        SolveMetrics metrics = newMetrics(hMode);
+        SearchState state = acquireState();
+        try {
+            long allocated = metrics != null ? SolveMetrics.allocatedBytes() : -1;
+            OpenSet queue = state.queue(hMode);
+            // The search time is always taken since the Solution reports it, everything else only when metrics are wanted
+            long time = System.nanoTime();
+            boolean found = search(state, queue, hMode, addDistance, start, end);
+            time = System.nanoTime() - time;
+            int[] path = null;
+            if (metrics == null) {
+                if (found) path = findPath(state, start, end);
+            } else {
+                metrics.setPhase(SolveMetrics.SEARCH, time);
+                if (found) {
+                    long backtrack = System.nanoTime();
+                    path = findPath(state, start, end);
+                    metrics.setPhase(SolveMetrics.BACKTRACK, System.nanoTime() - backtrack);
                 }
+                metrics.setResult(found, found ? path.length - 1 : -1, found ? state.cost : -1);
+                finishMetrics(metrics, state, queue, allocated);
             }
+            return new Solution(found, path, state.getExpanded(), time, found ? state.cost : -1);
+        } finally {
+            releaseState(state);
+        }
+    }
 
-            // Repeat for 3 other directions
+    public DistanceTable distanceTable (int[] sources, int[] targets, boolean keepPaths) {
+        /*
+        One breadth first sweep per source collects the distance to every target at once, instead of one search per pair
+        Weighted mazes get a Dijkstra sweep instead, so the table holds what walking costs (as in mode 'w') rather than step counts
+        A sweep stops as soon as the last target it can reach has been found
+        Sources do not depend on each other so they are spread over all cores, each with its own state from the pool
+        Paths are walked back from the targets while the sweep is still held, only the tiles on them are kept
+         */
+        for (int tile : sources) if (!grid.isWalkable(tile)) throw new IllegalArgumentException("Sources must not be walls");
+        for (int tile : targets) if (!grid.isWalkable(tile)) throw new IllegalArgumentException("Targets must not be walls");
 
-            // UP
-            if (currY > 0) {
-                Square next = maze[currY-1][currX];
-                if (next.isEnd()) {
-                    next.setAdj(curr);
-                    pathFound = true;
-                    break;
-                }
-                if (next.isOpen() && seen.add(next)) {
-                    next.setAdj(curr);
-                    next.setDistance(curr.getDistance()+1);
-                    next.setHeuristic(addDistance ? chooseHeuristic(next, hMode, count) + next.getDistance() : chooseHeuristic(next, hMode, count));
-                    queue.add(next);
-                }
+        // Bitmap of target tiles so the sweep can check any tile in O(1), repeated targets are only kept once
+        long[] isTarget = new long[(grid.size() + 63) >>> 6];
+        int[] distinct = new int[targets.length];
+        int distinctCount = 0;
+        for (int tile : targets) {
+            if ((isTarget[tile >>> 6] & (1L << tile)) == 0) distinct[distinctCount++] = tile;
+            isTarget[tile >>> 6] |= 1L << tile;
+        }
+        int[] uniqueTargets = Arrays.copyOf(distinct, distinctCount);
+
+        ComponentIndex components = getComponents();
+        boolean weighted = grid.hasWeights();
+        DistanceTable table = new DistanceTable(sources, targets, keepPaths);
+        IntStream.range(0, sources.length).parallel().forEach(s -> {
+            int source = sources[s];
+            // Only the targets in the same region can ever be found, the sweep can stop once it has them all
+            int reachable = 0;
+            for (int tile : uniqueTargets) {
+                if (components.connected(source, tile)) reachable++;
             }
 
-            // RIGHT
-            if (currX < width-1) {
-                Square next = maze[currY][currX+1];
-                if (next.isEnd()) {
-                    next.setAdj(curr);
-                    pathFound = true;
-                    break;
+            SearchState state = acquireState();
+            try {
+                if (weighted) {
+                    sweepWeighted(state, source, isTarget, reachable);
+                } else {
+                    sweep(state, source, isTarget, reachable);
                 }
-                if (next.isOpen() && seen.add(next)) {
-                    next.setAdj(curr);
-                    next.setDistance(curr.getDistance()+1);
-                    next.setHeuristic(addDistance ? chooseHeuristic(next, hMode, count) + next.getDistance() : chooseHeuristic(next, hMode, count));
-                    queue.add(next);
+                int[] row = new int[targets.length];
+                for (int t = 0; t < targets.length; t++) {
+                    row[t] = state.isSeen(targets[t]) ? state.distance[targets[t]] : -1;
                 }
+                table.setRow(s, row, keepPaths ? pathLinks(state, source, uniqueTargets) : null);
+            } finally {
+                releaseState(state);
             }
+        });
+        return table;
+    }
 
-            // DOWN
-            if (currY < height-1) {
-                Square next = maze[currY+1][currX];
-                if (next.isEnd()) {
-                    next.setAdj(curr);
-                    pathFound = true;
-                    break;
-                }
-                if (next.isOpen() && seen.add(next)) {
-                    next.setAdj(curr);
-                    next.setDistance(curr.getDistance()+1);
-                    next.setHeuristic(addDistance ? chooseHeuristic(next, hMode, count) + next.getDistance() : chooseHeuristic(next, hMode, count));
-                    queue.add(next);
-                }
+    private void sweep (SearchState state, int source, long[] isTarget, int remaining) {
+        // Plain breadth first search, the expanded order array doubles as the queue since tiles leave it in the order they joined
+        state.distance[source] = 0;
+        state.markSeen(source);
+        state.addExpanded(source);
+        if ((isTarget[source >>> 6] & (1L << source)) != 0) remaining--;
+        int head = 0;
+        while (head < state.expanded && remaining > 0) {
+            int curr = state.order[head++];
+            for (int n = 0; n < 5 && remaining > 0; n++) {
+                int next = grid.neighbour(curr, n);
+                if (next == -1 || !grid.isWalkable(next) || !state.markSeen(next)) continue;
+                state.parent[next] = curr;
+                state.distance[next] = state.distance[curr] + 1;
+                state.addExpanded(next);
+                if ((isTarget[next >>> 6] & (1L << next)) != 0) remaining--;
             }
+        }
+    }
 
-            // TELEPORTER
-            // Make sure that the teleporter list has a size of 2, meaning no teleporter has been seen
-            if (curr.isTeleport() && teleporters.size() > 1) {
-                // Remove seen teleporter so the tiles cannot keep jumping back to each other and making an infinite loop
-                teleporters.remove(curr);
-                // Teleporter goes directly to other teleporter
-                Square next = teleporters.get(0);
-                if (seen.add(next)) {
-                    next.setAdj(curr);
-                    next.setHeuristic(addDistance ? chooseHeuristic(next, hMode, count) + next.getDistance() : chooseHeuristic(next, hMode, count));
-                    queue.add(next);
+    private void sweepWeighted (SearchState state, int source, long[] isTarget, int remaining) {
+        // Dijkstra with the same costs as weighted search, a target only counts as found once it leaves the queue since a cheaper way can still be waiting
+        OpenSet queue = state.queue('w');
+        queue.clear();
+        state.distance[source] = 0;
+        state.parent[source] = -1;
+        state.markSeen(source);
+        queue.add(source, 0);
+        while (!queue.isEmpty() && remaining > 0) {
+            int curr = queue.poll();
+            state.addExpanded(curr);
+            if ((isTarget[curr >>> 6] & (1L << curr)) != 0) remaining--;
+            for (int n = 0; n < 5; n++) {
+                int next = grid.neighbour(curr, n);
+                if (next == -1 || !grid.isWalkable(next)) continue;
+                int distance = state.distance[curr] + (n == 4 ? teleportCost : grid.cost(next));
+                if (state.markSeen(next) || distance < state.distance[next]) {
+                    state.parent[next] = curr;
+                    state.distance[next] = distance;
+                    queue.add(next, distance);
                 }
             }
         }
+    }
 
-        if (pathFound) {
-            ArrayList<Square> path = findPath();
-            // path includes the start so subtract 1 to not include that
-            System.out.println("The solution was " + (path.size()-1) + " tiles long! (includes end)");
-            // Nice way of printing path out, anything on the path is marked as "p" and anything else that is not the start, end or teleporter is "_"
-            for (Square[] row : maze) {
-                for (Square item : row) {
-                    if (item.isStart()) {
-                        System.out.print("o");
-                    } else if (item.isEnd()) {
-                        System.out.print("*");
-                    } else if (item.isTeleport()) {
-                        System.out.print("@");
-                    } else if (path.contains(item)) {
-                        System.out.print("p");
-                    } else {
-                        System.out.print("_");
-                    }
-                }
-                System.out.println();
+    private long[] pathLinks (SearchState state, int source, int[] targets) {
+        // Each tile on a path to a target with the tile before it, packed tile << 32 | parent and sorted so DistanceTable can look them up
+        // Paths share their first tiles, walking back stops at a tile already taken so every tile is only kept once
+        long[] taken = new long[(grid.size() + 63) >>> 6];
+        long[] links = new long[16];
+        int count = 0;
+        for (int target : targets) {
+            if (!state.isSeen(target)) continue;
+            for (int tile = target; tile != -1 && (taken[tile >>> 6] & (1L << tile)) == 0; tile = tile == source ? -1 : state.parent[tile]) {
+                taken[tile >>> 6] |= 1L << tile;
+                if (count == links.length) links = Arrays.copyOf(links, count * 2);
+                links[count++] = (long) tile << 32 | (tile == source ? 0xFFFFFFFFL : state.parent[tile] & 0xFFFFFFFFL);
             }
-        } else {
-            System.out.println("No path exists");
         }
+        links = Arrays.copyOf(links, count);
+        Arrays.sort(links);
+        return links;
+    }
+
+    SearchState acquireState () {
+        synchronized (statePool) {
+            SearchState state = statePool.poll();
+            if (state != null) return state;
+        }
+        return new SearchState(grid.size());
+    }
+
+    void releaseState (SearchState state) {
+        // Reset only bumps the generation number, so putting a state back is O(1) however big the maze is
+        state.reset();
+        synchronized (statePool) {
+            statePool.push(state);
+        }
+    }
+
+    boolean search (SearchState state, OpenSet queue, char hMode, boolean addDistance) {
+        return search(state, queue, hMode, addDistance, grid.getStart(), grid.getEnd());
+    }
+
+    boolean search (SearchState state, OpenSet queue, char hMode, boolean addDistance, int start, int end) {
+        // Search from the start until the end is found, returns false if there is no path
+        // Cleared here too so the open set's counters never carry over from the last search when this one stops early
+        // Modes that keep their own frontier are given no queue at all
+        if (queue != null) queue.clear();
+        // Start and end in different regions can never be joined, so there is no need to search at all
+        if (!getComponents(state.getWatcher()).connected(start, end)) return false;
+        if (start == end) {
+            state.distance[start] = 0;
+            state.cost = 0;
+            state.markSeen(start);
+            return true;
+        }
+
+        if (hMode == 'w') {
+            // Weighted search works out its own cost, every other mode costs 1 per step so the cost is the length
+            WeightedSearch search = new WeightedSearch(grid, teleportCost);
+            return search.search(state, queue, start, end, portalTable(end, false, teleportCost, grid.getMinCost(), search.getCheapTiles(), state.getWatcher()));
+        }
+        boolean found = searchUnweighted(state, queue, hMode, addDistance, start, end);
+        if (found) state.cost = state.distance[end];
+        return found;
+    }
+
+    private boolean searchUnweighted (SearchState state, OpenSet queue, char hMode, boolean addDistance, int start, int end) {
+        switch (hMode) {
+            case 'j':
+                // Jump point search only puts tiles where the path could turn in the queue, it always uses distance plus Manhattan distance
+                return new JumpPointSearch(grid).search(state, queue, start, end, portalTable(end, false, 1, 1, 0, state.getWatcher()));
+            case 'b':
+                // Bidirectional search grows breadth first levels from both ends, so it has no use for the queue
+                return new BidirectionalSearch(grid).search(state, start, end);
+            case 'f':
+                // Fork-join breadth first search splits every level across all cores
+                return new ParallelBfs(grid, ForkJoinPool.commonPool()).search(state, start, end);
+            case 'h':
+                // Hierarchical search looks at clusters first, the cluster graph is built by the first query and kept for the rest
+                return getHierarchy(state.getWatcher()).search(state, start, end, portalTable(end, false, 1, 1, 0, state.getWatcher()));
+            default:
+                return searchAStar(state, queue, hMode, addDistance, start, end);
+        }
+    }
+
+    private boolean searchAStar (SearchState state, OpenSet queue, char hMode, boolean addDistance, int start, int end) {
+        // Open set of tile indices allows use of heuristics to guess which tiles will lead to the end, and therefore should be explored earlier
+        // The teleporter table behind the heuristics is only needed by the modes that use them
+        PortalHeuristic portals = hMode == 'e' || hMode == 'm' || hMode == 'p' ? portalTable(end, hMode == 'e', 1, 1, 0, state.getWatcher()) : null;
+        queue.clear();
+        queue.add(start, 0);
+        state.distance[start] = 0;
+        state.markSeen(start);
+
+        // If queue is empty and path is not found, that means there is no possible path to end
+        while (!queue.isEmpty()) {
+            // Get first element of queue and remove it
+            int curr = queue.poll();
+            int currX = grid.getX(curr);
+            int currY = grid.getY(curr);
 
-        System.out.println("There were " + count + " tiles searched");
+            // Array preserves order so this will show the searched squares in the correct order
+            state.addExpanded(curr);
+            // Count has no functional use except to see if the heuristics are working better than having none
+            int count = state.getExpanded();
+
+            /*
+            Checks to make sure that will not go off the edge of the grid, then get tile on one side of current one
+            Make sure never have seen tile before to stop infinite loops and then add to queue and mark as seen
+            Set each tile's parent to be which tile led to it and the distance to parent plus 1
+            A* Algorithm: Set the tile's priority to be the distance from start plus the estimated distance to end
+            */
+
+            // LEFT
+            if (currX > 0 && visit(state, queue, curr, curr - 1, end, portals, hMode, addDistance, count)) return true;
+
+            // UP
+            if (currY > 0 && visit(state, queue, curr, curr - width, end, portals, hMode, addDistance, count)) return true;
+
+            // RIGHT
+            if (currX < width-1 && visit(state, queue, curr, curr + 1, end, portals, hMode, addDistance, count)) return true;
+
+            // DOWN
+            if (currY < height-1 && visit(state, queue, curr, curr + width, end, portals, hMode, addDistance, count)) return true;
+
+            // TELEPORTER
+            // Teleporter goes directly to other teleporter, seeing each tile only once stops tiles jumping back and forth forever
+            // so the Grid's teleporter list never has to be changed
+            if (grid.isTeleport(curr)) {
+                int next = grid.getPartner(curr);
+                if (next != -1 && visit(state, queue, curr, next, end, portals, hMode, addDistance, count)) return true;
+            }
+        }
+        return false;
+    }
 
-        this.seenOrder = seenOrder;
+    private boolean visit (SearchState state, OpenSet queue, int curr, int next, int end, PortalHeuristic portals, char hMode, boolean addDistance, int count) {
+        // Stop searching maze once a path has been found
+        if (next == end) {
+            state.parent[next] = curr;
+            state.distance[next] = state.distance[curr]+1;
+            state.markSeen(next);
+            return true;
+        }
+        // The start is walkable too, but it has been seen from the beginning so it is never added again
+        if (!grid.isWalkable(next)) return false;
+        int distance = state.distance[curr]+1;
+        if (state.markSeen(next)) {
+            state.parent[next] = curr;
+            state.distance[next] = distance;
+            /*
+             If the option to use distance to start is selected on GUI,
+             A* algorithm is f(x) = g(x) + h(x) where g(x) is distance to start, h(x) is estimated distance to end
+             I find it works much better most of the time without adding h(x) so I added an option for that
+             */
+            queue.add(next, addDistance ? chooseHeuristic(next, portals, hMode, count) + distance : chooseHeuristic(next, portals, hMode, count));
+        } else if (distance < state.distance[next] && queue.contains(next)) {
+            // Found a shorter way to a tile that is still waiting, so use it instead (decrease-key)
+            state.parent[next] = curr;
+            state.distance[next] = distance;
+            queue.add(next, addDistance ? chooseHeuristic(next, portals, hMode, count) + distance : chooseHeuristic(next, portals, hMode, count));
+        }
+        return false;
     }
 
-    public ArrayList<Square> getSeenOrder() {
+    public int[] getSeenOrder() {
         return seenOrder;
     }
 
-    private ArrayList<Square> findPath() {
-        // Backtracking from end: keep getting squares that led to current one until reach start
-        ArrayList<Square> path = new ArrayList<>();
-        path.add(end);
-        Square adjSquare = end.getAdj();
-        path.add(adjSquare);
-        while (!adjSquare.isStart()) {
-            adjSquare = adjSquare.getAdj();
-            path.add(adjSquare);
+    public void setOutput (Path file, boolean runsOnly) {
+        // null file means print to System.out like before
+        this.outputFile = file;
+        this.runsOnly = runsOnly;
+    }
+
+    private void writeSolution (int[] path, long[] onPath) {
+        PathWriter writer = new PathWriter(grid);
+        try {
+            if (outputFile == null) {
+                if (runsOnly) writer.writeRuns(path, System.out); else writer.writeGrid(onPath, System.out);
+                return;
+            }
+            try (OutputStream out = Files.newOutputStream(outputFile)) {
+                if (runsOnly) writer.writeRuns(path, out); else writer.writeGrid(onPath, out);
+            }
+            System.out.println("Solution written to " + outputFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write solution", e);
+        }
+    }
+
+    void printSolution (int[] path, OutputStream out) {
+        // Nice way of printing path out, anything on the path is marked as "p" and anything else that is not the start, end or teleporter is "_"
+        try {
+            new PathWriter(grid).writeGrid(PathWriter.mark(path, grid.size()), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write solution", e);
+        }
+    }
+
+    int[] findPath(SearchState state, int start, int end) {
+        return findPath(state, start, end, null);
+    }
+
+    int[] findPath(SearchState state, int start, int end, long[] onPath) {
+        // Backtracking from end: keep getting tiles that led to current one until reach start
+        // Every step is one tile so the distance to the end says exactly how long the array has to be
+        // If a bitmap is given the path is marked in it on the way, ready for PathWriter
+        int[] path = new int[state.distance[end] + 1];
+        int adj = end;
+        for (int i = 0; i < path.length; i++) {
+            path[i] = adj;
+            if (onPath != null) onPath[adj >>> 6] |= 1L << adj;
+            adj = state.parent[adj];
         }
+        if (path[path.length - 1] != start) throw new IllegalStateException("Path does not lead back to the start");
 
         return path;
     }
 
-    public Square[][] getMaze () {
-        return this.maze;
+    public void setTeleportCost (int teleportCost) {
+        if (teleportCost < 0) throw new IllegalArgumentException("Teleporting cannot cost less than 0");
+        this.teleportCost = teleportCost;
+    }
+
+    public synchronized void setOpen (int tile, boolean open) {
+        // Opens or closes one door, only walls and open tiles can be swapped, the start, end and teleporters stay where they are
+        // Use an IncrementalPlanner's setOpen instead to keep a planned path up to date, and do not solve from other threads while editing
+        byte kind = grid.getTile(tile);
+        if (kind != Grid.WALL && kind != Grid.OPEN) throw new IllegalArgumentException("Only walls and open tiles can be opened or closed");
+        grid.setTile(tile, open ? Grid.OPEN : Grid.WALL);
+        // Regions and the cluster graph were worked out for the old tiles, they are built again when next needed
+        components = null;
+        hierarchy = null;
+    }
+
+    public ComponentIndex getComponents () {
+        return getComponents(null);
+    }
+
+    synchronized ComponentIndex getComponents (SearchWatcher watcher) {
+        // Labelling looks at every tile once, so only do it the first time it is needed and keep it with the maze
+        // A cancelled build throws and leaves nothing behind, the next search starts it again
+        if (components == null) components = ComponentIndex.build(grid, watcher);
+        return components;
+    }
+
+    public HierarchicalGraph getHierarchy () {
+        return getHierarchy(null);
+    }
+
+    synchronized HierarchicalGraph getHierarchy (SearchWatcher watcher) {
+        // Clusters of 16x16 tiles keep both the cluster graph and the tiles searched inside one cluster small
+        if (hierarchy == null) hierarchy = HierarchicalGraph.build(grid, 16, watcher);
+        return hierarchy;
+    }
+
+    PortalHeuristic portalTable (int end, boolean euclidean, int teleportCost, int minCost, int cheapTiles, SearchWatcher watcher) {
+        // Mazes without teleporters have nothing to work out, the table is empty and not worth keeping
+        if (grid.getTeleporterCount() == 0) return new PortalHeuristic(grid, end, teleportCost, minCost, cheapTiles, euclidean, watcher);
+        // Walls do not change the table, only the end, the costs and the teleporters themselves, so the count is part of the key too
+        List<Integer> key = List.of(end, euclidean ? 1 : 0, teleportCost, minCost, cheapTiles, grid.getTeleporterCount());
+        synchronized (portalTables) {
+            PortalHeuristic portals = portalTables.get(key);
+            if (portals != null) return portals;
+        }
+        // Built outside the lock so one slow table never holds up queries to other ends, two threads building the same one is harmless
+        PortalHeuristic portals = new PortalHeuristic(grid, end, teleportCost, minCost, cheapTiles, euclidean, watcher);
+        synchronized (portalTables) {
+            portalTables.put(key, portals);
+        }
+        return portals;
+    }
+
+    public Grid getGrid () {
+        return this.grid;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,190 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ Compact binary maze format, about a tenth of the size of the text format and read without parsing anything
+ Header: "MAZB", version, width, height, start, end, teleporter count then each teleporter's tile and label (all 4 byte ints, tiles as y*width+x)
+ After the header every tile is one bit, 1 for walkable and 0 for wall, lowest bit of each byte first
+ Start, end and teleporters only need to be in the header, so walls and open tiles are all the body has to tell apart
+ Mazes with weighted tiles are written as version 4 instead: 4 bits per tile, 0 wall, 1 open, 2-10 for the weights 1-9
+ Versions 1 and 2 (the same without teleporter labels, every teleporter is '@') can still be read
+ Convert a text maze with: java MazeBinary maze.txt maze.mazb
+ **/
+
+public class MazeBinary {
+    // "MAZB", cannot be the start of a text maze since those begin with a number
+    static final int MAGIC = 0x4D415A42;
+    private static final int VERSION = 3, VERSION_WEIGHTED = 4;
+
+    // Largest piece of the tiles mapped at once, a single mapping cannot be bigger than 2GB
+    private static final long MAP_CHUNK = 1L << 30;
+
+    // Each possible byte of the body already spread out into its 8 tiles, so decoding is a copy per byte instead of a shift per tile
+    private static final byte[][] SPREAD = new byte[256][8];
+    // Same for the weighted version, 2 tiles per byte
+    private static final byte[][] SPREAD_WEIGHTED = new byte[256][2];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int bit = 0; bit < 8; bit++) SPREAD[b][bit] = (b >> bit & 1) == 1 ? Grid.OPEN : Grid.WALL;
+            for (int half = 0; half < 2; half++) SPREAD_WEIGHTED[b][half] = weightedKind(b >> (4 * half) & 0xF);
+        }
+    }
+
+    private static byte weightedKind (int nibble) {
+        // Values past 10 are never written, they read back as walls
+        if (nibble == 1) return Grid.OPEN;
+        if (nibble >= 2 && nibble <= 10) return (byte) (Grid.WEIGHT_BASE + nibble - 1);
+        return Grid.WALL;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java MazeBinary <text maze> <binary maze>");
+            System.exit(2);
+        }
+        Path from = Path.of(args[0]), to = Path.of(args[1]);
+        Grid grid = MazeLoader.load(from);
+        write(grid, to);
+        System.out.println(grid.getWidth() + "x" + grid.getHeight() + ": " + Files.size(from) + " bytes as text, " + Files.size(to) + " bytes as binary");
+    }
+
+    public static byte[] encode (Grid grid) {
+        int size = grid.size();
+        boolean weighted = false;
+        for (int i = 0; i < size && !weighted; i++) weighted = grid.isWeighted(i);
+        int perByte = weighted ? 2 : 8;
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize(grid.getTeleporterCount(), true) + (size + perByte - 1) / perByte).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(weighted ? VERSION_WEIGHTED : VERSION).putInt(grid.getWidth()).putInt(grid.getHeight());
+        buffer.putInt(grid.getStart()).putInt(grid.getEnd()).putInt(grid.getTeleporterCount());
+        for (int t = 0; t < grid.getTeleporterCount(); t++) buffer.putInt(grid.getTeleporter(t)).putInt(grid.getTeleporterLabel(t));
+
+        int bitsPerTile = 8 / perByte;
+        for (int i = 0; i < size; i += perByte) {
+            int bits = 0;
+            for (int t = 0; t < perByte && i + t < size; t++) {
+                int value;
+                if (!grid.isWalkable(i + t)) value = 0;
+                else if (weighted && grid.isWeighted(i + t)) value = grid.cost(i + t) + 1;
+                else value = 1;
+                bits |= value << (t * bitsPerTile);
+            }
+            buffer.put((byte) bits);
+        }
+        return buffer.array();
+    }
+
+    public static void write (Grid grid, Path file) throws IOException {
+        Files.write(file, encode(grid));
+    }
+
+    public static boolean isBinary (FileChannel channel) throws IOException {
+        if (channel.size() < 4) return false;
+        ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(magic, 0);
+        return magic.getInt(0) == MAGIC;
+    }
+
+    public static Grid load (Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return load(channel);
+        }
+    }
+
+    static Grid load (FileChannel channel) throws IOException {
+        // Only the header is read normally, the tiles are mapped and spread straight into the grid
+        ByteBuffer header = ByteBuffer.allocate(headerSize(0, false)).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        Grid grid = header(header);
+        int headerSize = headerSize(header.getInt(24), labelled(header));
+        ByteBuffer specials = ByteBuffer.allocate(headerSize - headerSize(0, false)).order(ByteOrder.LITTLE_ENDIAN);
+        byte[][] table = table(header);
+        int perByte = table[0].length;
+        long bodySize = (grid.size() + perByte - 1L) / perByte;
+        if (channel.size() < headerSize + bodySize) throw new IllegalArgumentException("Binary maze is cut short");
+        channel.read(specials, headerSize(0, false));
+        byte[] tiles = new byte[perByte * (int) Math.min(1 << 16, bodySize)];
+        for (long pos = 0; pos < bodySize; pos += MAP_CHUNK) {
+            ByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + pos, Math.min(MAP_CHUNK, bodySize - pos));
+            spread(grid, body, pos * perByte, tiles, table);
+        }
+        return special(grid, header, specials);
+    }
+
+    public static Grid read (ByteBuffer buffer) {
+        // Same as load but for a format already in memory
+        buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        Grid grid = header(buffer);
+        int headerSize = headerSize(buffer.getInt(24), labelled(buffer));
+        byte[][] table = table(buffer);
+        int perByte = table[0].length;
+        if (buffer.limit() < headerSize + (grid.size() + perByte - 1L) / perByte) throw new IllegalArgumentException("Binary maze is cut short");
+        ByteBuffer specials = buffer.slice(headerSize(0, false), headerSize - headerSize(0, false)).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer body = buffer.slice(headerSize, buffer.limit() - headerSize);
+        spread(grid, body, 0, new byte[perByte * Math.min(1 << 16, body.limit())], table);
+        return special(grid, buffer, specials);
+    }
+
+    private static int headerSize (int teleporters, boolean labelled) {
+        return 4 * (7 + teleporters * (labelled ? 2 : 1));
+    }
+
+    private static boolean labelled (ByteBuffer header) {
+        return header.getInt(4) >= 3;
+    }
+
+    private static Grid header (ByteBuffer header) {
+        if (header.limit() < headerSize(0, false) || header.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a binary maze");
+        if (header.getInt(4) < 1 || header.getInt(4) > VERSION_WEIGHTED) throw new IllegalArgumentException("Binary maze version " + header.getInt(4) + " is not supported");
+        if (header.getInt(24) < 0) throw new IllegalArgumentException("Binary maze has a negative teleporter count");
+        return new Grid(header.getInt(8), header.getInt(12));
+    }
+
+    private static byte[][] table (ByteBuffer header) {
+        // Versions 2 and 4 are the weighted ones
+        return header.getInt(4) % 2 == 0 ? SPREAD_WEIGHTED : SPREAD;
+    }
+
+    private static void spread (Grid grid, ByteBuffer body, long first, byte[] tiles, byte[][] table) {
+        // Decode a block of body bytes into tiles, then copy the block into the grid in one go
+        int size = grid.size();
+        int limit = body.limit();
+        int perByte = table[0].length;
+        for (int b = 0; b < limit; ) {
+            int count = Math.min(limit - b, tiles.length / perByte);
+            for (int k = 0; k < count; k++) System.arraycopy(table[body.get(b + k) & 0xFF], 0, tiles, perByte * k, perByte);
+            long i = first + (long) perByte * b;
+            int length = (int) Math.min((long) perByte * count, size - i);
+            if (length <= 0) return;
+            grid.copyTiles((int) i, tiles, length);
+            b += count;
+        }
+    }
+
+    private static Grid special (Grid grid, ByteBuffer header, ByteBuffer teleporters) {
+        // The body only says walkable or not, the header says which walkable tiles are special
+        int start = header.getInt(16), end = header.getInt(20);
+        if (start != -1) grid.setTile(checked(grid, start), Grid.START);
+        if (end != -1) grid.setTile(checked(grid, end), Grid.END);
+        if (labelled(header)) {
+            for (int t = 0; t < teleporters.limit() / 8; t++) {
+                grid.setTeleporter(checked(grid, teleporters.getInt(8 * t)), teleporters.getInt(8 * t + 4));
+            }
+        } else {
+            for (int t = 0; t < teleporters.limit() / 4; t++) {
+                grid.setTile(checked(grid, teleporters.getInt(4 * t)), Grid.TELEPORT);
+            }
+        }
+        return grid;
+    }
+
+    private static int checked (Grid grid, int tile) {
+        if (tile < 0 || tile >= grid.size()) throw new IllegalArgumentException("Binary maze has tile " + tile + " outside the maze");
+        return tile;
+    }
+}
@@ -0,0 +1,518 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ Seeded maze generators so the same maze can be made again for benchmarks, testing and load testing
+ Every generator writes straight into a Grid and puts the start and end where the search has to cross the whole maze
+ Perfect mazes (recursive backtracker, Kruskal, Wilson) and caves can be made in parallel: big perfect mazes are split into regions
+ carved at the same time and then joined by a random tree of doors, caves work out every row of a round at the same time
+ Region seeds come from the maze seed and the region number, so the same seed gives the same maze however many cores there are
+ Run with: java MazeGenerator <backtracker|kruskal|wilson|caves|field|open|spiral> width height out.txt|out.mazb
+  [--seed 1] [--density 0.45] [--rounds 4] [--ends corners|random|farthest] [--teleporters 0] [--terrain 0]
+ **/
+
+public class MazeGenerator {
+    public static Grid openField (int width, int height) {
+        Grid grid = new Grid(width, height);
+        for (int i = 0; i < grid.size(); i++) grid.setTile(i, Grid.OPEN);
+        // Start in the top left and end in the bottom right
+        grid.setTile(0, Grid.START);
+        grid.setTile(grid.size() - 1, Grid.END);
+        return grid;
+    }
+
+    public static Grid randomWalls (int width, int height, double density, long seed) {
+        Random random = new Random(seed);
+        Grid grid = new Grid(width, height);
+        for (int i = 0; i < grid.size(); i++) grid.setTile(i, random.nextDouble() < density ? Grid.WALL : Grid.OPEN);
+        // Clear the corners so the start and end are not walled in
+        for (int y = 0; y < Math.min(3, height); y++) {
+            for (int x = 0; x < Math.min(3, width); x++) {
+                grid.setTile(grid.index(x, y), Grid.OPEN);
+                grid.setTile(grid.index(width - 1 - x, height - 1 - y), Grid.OPEN);
+            }
+        }
+        grid.setTile(0, Grid.START);
+        grid.setTile(grid.size() - 1, Grid.END);
+        return grid;
+    }
+
+    public static final int BACKTRACKER = 0, KRUSKAL = 1, WILSON = 2;
+    public static final String[] ALGORITHMS = {"backtracker", "kruskal", "wilson"};
+    // Where the start and end go: the first and last open tiles, two random open tiles, or the two ends of a longest path
+    public static final int CORNERS = 0, RANDOM = 1, FARTHEST = 2;
+    public static final String[] ENDS = {"corners", "random", "farthest"};
+
+    // Perfect mazes bigger than this many cells across are carved as regions of this size, one task per region
+    private static final int REGION = 256;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: java MazeGenerator <backtracker|kruskal|wilson|caves|field|open|spiral> width height out.txt|out.mazb"
+                    + " [--seed 1] [--density 0.45] [--rounds 4] [--ends corners|random|farthest] [--teleporters 0] [--terrain 0]");
+            System.exit(2);
+        }
+        String kind = args[0];
+        int width = Integer.parseInt(args[1]), height = Integer.parseInt(args[2]);
+        Path out = Path.of(args[3]);
+        long seed = 1;
+        double density = kind.equals("field") ? 0.25 : 0.45, terrain = 0;
+        int rounds = 4, pairs = 0, ends = -1;
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--density": density = Double.parseDouble(args[++i]); break;
+                case "--rounds": rounds = Integer.parseInt(args[++i]); break;
+                case "--ends": ends = indexOf(ENDS, args[++i]); break;
+                case "--teleporters": pairs = Integer.parseInt(args[++i]); break;
+                case "--terrain": terrain = Double.parseDouble(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        long time = System.nanoTime();
+        Grid grid;
+        switch (kind) {
+            case "caves": grid = caves(width, height, density, rounds, seed); break;
+            // A field is the random walls the benchmarks use, every tile a wall or not on its own
+            case "field": grid = randomWalls(width, height, density, seed); break;
+            case "open": grid = openField(width, height); break;
+            case "spiral": grid = spiral(width, height); break;
+            default:
+                if (!Arrays.asList(ALGORITHMS).contains(kind)) throw new IllegalArgumentException("Unknown maze kind " + kind + ", expected backtracker, kruskal, wilson, caves, field, open or spiral");
+                grid = perfectMaze(width, height, indexOf(ALGORITHMS, kind), seed);
+        }
+        // Caves and fields can be cut into pieces, so by default their ends are put where they are sure to be joined
+        if (ends == -1) ends = kind.equals("caves") || kind.equals("field") ? FARTHEST : CORNERS;
+        placeEnds(grid, ends, seed);
+        if (terrain > 0) withTerrain(grid, terrain, seed);
+        if (pairs > 0) withPortals(grid, pairs, seed);
+        time = System.nanoTime() - time;
+
+        // Binary for .mazb files, text for anything else, either can be passed straight to Main or BatchRunner
+        if (out.toString().endsWith(".mazb")) MazeBinary.write(grid, out); else Files.write(out, grid.toText());
+        System.out.printf("%s %dx%d generated in %.1f ms, %d bytes written to %s%n", kind, width, height, time / 1e6, Files.size(out), out);
+    }
+
+    private static int indexOf (String[] names, String name) {
+        for (int n = 0; n < names.length; n++) {
+            if (names[n].equalsIgnoreCase(name)) return n;
+        }
+        throw new IllegalArgumentException("Unknown option " + name + ", expected one of " + String.join(", ", names));
+    }
+
+    public static Grid perfectMaze (int width, int height, long seed) {
+        // Recursive backtracker, always carved as one region so the mazes the benchmarks use stay the same however big they are
+        return perfectMaze(width, height, BACKTRACKER, seed, false);
+    }
+
+    public static Grid perfectMaze (int width, int height, int algorithm, long seed) {
+        return perfectMaze(width, height, algorithm, seed, true);
+    }
+
+    private static Grid perfectMaze (int width, int height, int algorithm, long seed, boolean regions) {
+        /*
+        Any of the three algorithms, carved in regions of REGION x REGION cells at the same time when the maze is big (and regions are allowed)
+        Each region is a perfect maze on its own, then one door between every pair of regions joined by a random spanning tree
+        keeps the whole thing perfect: a tree of trees is still a tree
+         */
+        Grid grid = new Grid(width, height);
+        int cellsX = (width - 1) / 2, cellsY = (height - 1) / 2;
+        // The start and end go in different cells, so one cell (3x3 and 4x4) is not enough
+        if (cellsX < 1 || cellsY < 1 || cellsX * cellsY < 2) throw new IllegalArgumentException("Perfect mazes must be at least 5x3 or 3x5");
+        int regionsX = regions ? (cellsX + REGION - 1) / REGION : 1, regionsY = regions ? (cellsY + REGION - 1) / REGION : 1;
+
+        if (regionsX * regionsY == 1) {
+            carve(grid, algorithm, 0, 0, cellsX, cellsY, new Random(seed));
+        } else {
+            // Regions only write to their own tiles, the walls between regions are left alone until they are joined below
+            IntStream.range(0, regionsX * regionsY).parallel().forEach(r -> {
+                int rx = r % regionsX, ry = r / regionsX;
+                carve(grid, algorithm, rx * REGION, ry * REGION, Math.min(cellsX, (rx + 1) * REGION), Math.min(cellsY, (ry + 1) * REGION), new Random(mix(seed, r)));
+            });
+            joinRegions(grid, regionsX, regionsY, cellsX, cellsY, new Random(seed));
+        }
+
+        grid.setTile(grid.index(1, 1), Grid.START);
+        grid.setTile(grid.index(2 * cellsX - 1, 2 * cellsY - 1), Grid.END);
+        return grid;
+    }
+
+    private static void carve (Grid grid, int algorithm, int x0, int y0, int x1, int y1, Random random) {
+        // Cells x0..x1-1 by y0..y1-1, cell x,y is tile 2x+1, 2y+1
+        switch (algorithm) {
+            case KRUSKAL: kruskal(grid, x0, y0, x1, y1, random); break;
+            case WILSON: wilson(grid, x0, y0, x1, y1, random); break;
+            default: backtracker(grid, x0, y0, x1, y1, random);
+        }
+    }
+
+    private static void backtracker (Grid grid, int x0, int y0, int x1, int y1, Random random) {
+        /*
+        Recursive backtracker: cells sit on odd x,y with walls between them
+        Walk to a random unvisited neighbour cell knocking down the wall between, and back up when stuck
+        Every cell ends up joined to every other by exactly one path
+        Uses an array as the stack so huge mazes do not overflow the call stack
+         */
+        int width = grid.getWidth();
+        int[] stack = new int[(x1 - x0) * (y1 - y0)];
+        int top = 0;
+        int first = grid.index(2 * x0 + 1, 2 * y0 + 1);
+        grid.setTile(first, Grid.OPEN);
+        stack[top++] = first;
+        int[] options = new int[4];
+        while (top > 0) {
+            int curr = stack[top - 1];
+            int x = grid.getX(curr), y = grid.getY(curr);
+            int count = 0;
+            // Neighbour cells are two tiles away, still walls means not visited yet
+            if (x > 2 * x0 + 2 && grid.getTile(curr - 2) == Grid.WALL) options[count++] = -1;
+            if (y > 2 * y0 + 2 && grid.getTile(curr - 2 * width) == Grid.WALL) options[count++] = -width;
+            if (x < 2 * x1 - 1 && grid.getTile(curr + 2) == Grid.WALL) options[count++] = 1;
+            if (y < 2 * y1 - 1 && grid.getTile(curr + 2 * width) == Grid.WALL) options[count++] = width;
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            int step = options[random.nextInt(count)];
+            grid.setTile(curr + step, Grid.OPEN);
+            grid.setTile(curr + 2 * step, Grid.OPEN);
+            stack[top++] = curr + 2 * step;
+        }
+    }
+
+    private static void kruskal (Grid grid, int x0, int y0, int x1, int y1, Random random) {
+        /*
+        Kruskal: every wall between two cells in a random order, knocked down if the cells are not joined yet
+        Joined cells are tracked with union-find, so no wall ever makes a loop
+         */
+        int w = x1 - x0, h = y1 - y0;
+        int[] parent = new int[w * h];
+        for (int c = 0; c < parent.length; c++) {
+            parent[c] = c;
+            grid.setTile(cellTile(grid, x0 + c % w, y0 + c / w), Grid.OPEN);
+        }
+        // Wall c*2 is to the right of cell c, c*2+1 is below it
+        int[] walls = new int[2 * w * h];
+        int count = 0;
+        for (int c = 0; c < parent.length; c++) {
+            if (c % w < w - 1) walls[count++] = 2 * c;
+            if (c / w < h - 1) walls[count++] = 2 * c + 1;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = walls[i];
+            walls[i] = walls[j];
+            walls[j] = swap;
+        }
+        for (int i = 0; i < count; i++) {
+            int c = walls[i] >> 1;
+            boolean down = (walls[i] & 1) == 1;
+            int a = find(parent, c), b = find(parent, down ? c + w : c + 1);
+            if (a == b) continue;
+            parent[a] = b;
+            int tile = cellTile(grid, x0 + c % w, y0 + c / w);
+            grid.setTile(down ? tile + grid.getWidth() : tile + 1, Grid.OPEN);
+        }
+    }
+
+    private static int find (int[] parent, int c) {
+        // Path halving keeps the trees flat without recursion
+        while (parent[c] != c) {
+            parent[c] = parent[parent[c]];
+            c = parent[c];
+        }
+        return c;
+    }
+
+    private static void wilson (Grid grid, int x0, int y0, int x1, int y1, Random random) {
+        /*
+        Wilson: random walks from every cell not in the maze yet until they hit the maze, then the walk is added
+        Only the last direction taken out of each cell is kept, which erases any loops the walk made
+        Every perfect maze is equally likely, unlike the backtracker which makes long winding corridors
+         */
+        int w = x1 - x0, h = y1 - y0, width = grid.getWidth();
+        boolean[] inMaze = new boolean[w * h];
+        byte[] exit = new byte[w * h];
+        int root = random.nextInt(w * h);
+        inMaze[root] = true;
+        grid.setTile(cellTile(grid, x0 + root % w, y0 + root / w), Grid.OPEN);
+        // LEFT, UP, RIGHT, DOWN as steps between cells
+        int[] steps = {-1, -w, 1, w}, tileSteps = {-1, -width, 1, width};
+        int[] options = new int[4];
+        for (int s = 0; s < inMaze.length; s++) {
+            int c = s;
+            while (!inMaze[c]) {
+                int count = 0;
+                if (c % w > 0) options[count++] = 0;
+                if (c / w > 0) options[count++] = 1;
+                if (c % w < w - 1) options[count++] = 2;
+                if (c / w < h - 1) options[count++] = 3;
+                exit[c] = (byte) options[random.nextInt(count)];
+                c += steps[exit[c]];
+            }
+            for (c = s; !inMaze[c]; c += steps[exit[c]]) {
+                inMaze[c] = true;
+                int tile = cellTile(grid, x0 + c % w, y0 + c / w);
+                grid.setTile(tile, Grid.OPEN);
+                grid.setTile(tile + tileSteps[exit[c]], Grid.OPEN);
+            }
+        }
+    }
+
+    private static void joinRegions (Grid grid, int regionsX, int regionsY, int cellsX, int cellsY, Random random) {
+        // Kruskal again, but over the regions: each pair of neighbouring regions joined by the tree gets one door at a random cell of their border
+        int[] parent = new int[regionsX * regionsY];
+        for (int r = 0; r < parent.length; r++) parent[r] = r;
+        int[] borders = new int[2 * parent.length];
+        int count = 0;
+        for (int r = 0; r < parent.length; r++) {
+            if (r % regionsX < regionsX - 1) borders[count++] = 2 * r;
+            if (r / regionsX < regionsY - 1) borders[count++] = 2 * r + 1;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = borders[i];
+            borders[i] = borders[j];
+            borders[j] = swap;
+        }
+        for (int i = 0; i < count; i++) {
+            int r = borders[i] >> 1;
+            boolean down = (borders[i] & 1) == 1;
+            int a = find(parent, r), b = find(parent, down ? r + regionsX : r + 1);
+            if (a == b) continue;
+            parent[a] = b;
+            int rx = r % regionsX, ry = r / regionsX;
+            if (down) {
+                // Door in the wall under the last row of cells of region r, somewhere along its width
+                int x = rx * REGION + random.nextInt(Math.min(cellsX, (rx + 1) * REGION) - rx * REGION);
+                grid.setTile(cellTile(grid, x, (ry + 1) * REGION - 1) + grid.getWidth(), Grid.OPEN);
+            } else {
+                int y = ry * REGION + random.nextInt(Math.min(cellsY, (ry + 1) * REGION) - ry * REGION);
+                grid.setTile(cellTile(grid, (rx + 1) * REGION - 1, y) + 1, Grid.OPEN);
+            }
+        }
+    }
+
+    private static int cellTile (Grid grid, int cellX, int cellY) {
+        return grid.index(2 * cellX + 1, 2 * cellY + 1);
+    }
+
+    public static Grid caves (int width, int height, double density, int rounds, long seed) {
+        /*
+        Cellular automaton caves: start with about density of the tiles as walls, then smooth a few rounds
+        Each round a tile becomes a wall with 5 or more walls among its 8 neighbours, opens up with 3 or fewer, and stays as it was with 4
+        Tiles off the edge count as walls so the caves close up at the sides
+        Every tile's first coin flip comes from hashing the seed and its index, and each round only reads the last one,
+        so every row can be worked out at the same time and the result never depends on the number of threads
+        For a field that is never smoothed use randomWalls, that is what the field kind and the benchmarks use
+         */
+        Grid grid = new Grid(width, height);
+        byte[] curr = new byte[grid.size()], next = new byte[grid.size()];
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int i = y * width; i < (y + 1) * width; i++) curr[i] = random(seed, i) < density ? Grid.WALL : Grid.OPEN;
+        });
+        for (int round = 0; round < rounds; round++) {
+            byte[] from = round % 2 == 0 ? curr : next, to = round % 2 == 0 ? next : curr;
+            IntStream.range(0, height).parallel().forEach(y -> smoothRow(from, to, width, height, y));
+        }
+        byte[] result = rounds % 2 == 0 ? curr : next;
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(result, y * width, row, 0, width);
+            grid.copyRow(y, row);
+        }
+        return grid;
+    }
+
+    private static void smoothRow (byte[] from, byte[] to, int width, int height, int y) {
+        // Walls in each column of the 3 rows around this one, slid along so every tile adds up 3 columns instead of 8 neighbours
+        int left = 3, middle = column(from, width, height, 0, y);
+        for (int x = 0; x < width; x++) {
+            int right = x + 1 < width ? column(from, width, height, x + 1, y) : 3;
+            int i = y * width + x;
+            int walls = left + middle + right - (from[i] == Grid.WALL ? 1 : 0);
+            to[i] = walls >= 5 ? Grid.WALL : walls <= 3 ? Grid.OPEN : from[i];
+            left = middle;
+            middle = right;
+        }
+    }
+
+    private static int column (byte[] tiles, int width, int height, int x, int y) {
+        // Tiles off the top or bottom count as walls
+        int i = y * width + x;
+        int walls = tiles[i] == Grid.WALL ? 1 : 0;
+        walls += y == 0 || tiles[i - width] == Grid.WALL ? 1 : 0;
+        walls += y == height - 1 || tiles[i + width] == Grid.WALL ? 1 : 0;
+        return walls;
+    }
+
+    private static long mix (long seed, long n) {
+        // SplitMix64 finaliser, neighbouring inputs give unrelated outputs
+        long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double random (long seed, long n) {
+        // Between 0 and 1 from the top 53 bits, like Random.nextDouble
+        return (mix(seed, n) >>> 11) * 0x1.0p-53;
+    }
+
+    public static Grid placeEnds (Grid grid, int ends, long seed) {
+        /*
+        Moves the start and end (whatever the generator chose is taken away first)
+        CORNERS: first open tile from the top left and last open tile from the bottom right, they might not be joined in caves
+        RANDOM: two different random open tiles, they might not be joined either
+        FARTHEST: breadth first search from a random open tile to the tile farthest from it, then again from there,
+        the two ends of the second search are about as far apart as any two joined tiles get, and they are always joined
+         */
+        if (grid.getStart() != -1) grid.setTile(grid.getStart(), Grid.OPEN);
+        if (grid.getEnd() != -1) grid.setTile(grid.getEnd(), Grid.OPEN);
+        int start = -1, end = -1;
+        if (ends == CORNERS) {
+            for (int i = 0; i < grid.size() && start == -1; i++) if (grid.getTile(i) == Grid.OPEN) start = i;
+            for (int i = grid.size() - 1; i > start && end == -1; i--) if (grid.getTile(i) == Grid.OPEN) end = i;
+        } else {
+            Random random = new Random(seed);
+            start = randomOpen(grid, random, -1);
+            if (ends == RANDOM) {
+                end = randomOpen(grid, random, start);
+            } else {
+                int[] distance = new int[grid.size()], queue = new int[grid.size()];
+                // A random tile could be in a tiny pocket, so try a few and keep the one whose region reaches the furthest
+                int best = -1, bestReach = 0;
+                for (int tries = 0; tries < 8 && start != -1; tries++) {
+                    int reached = farthest(grid, start, distance, queue);
+                    int far = queue[reached - 1];
+                    if (distance[far] > bestReach || best == -1) {
+                        best = far;
+                        bestReach = distance[far];
+                    }
+                    start = randomOpen(grid, random, -1);
+                }
+                start = best;
+                if (start != -1) {
+                    int reached = farthest(grid, start, distance, queue);
+                    end = queue[reached - 1];
+                    if (end == start) end = -1;
+                }
+            }
+        }
+        if (start == -1 || end == -1) throw new IllegalArgumentException("Could not find two open tiles for the start and end");
+        grid.setTile(start, Grid.START);
+        grid.setTile(end, Grid.END);
+        return grid;
+    }
+
+    private static int randomOpen (Grid grid, Random random, int not) {
+        // Random guesses first, then a scan from a random place so mostly walled mazes still finish
+        for (int tries = 0; tries < 1000; tries++) {
+            int i = random.nextInt(grid.size());
+            if (i != not && grid.getTile(i) == Grid.OPEN) return i;
+        }
+        int from = random.nextInt(grid.size());
+        for (int n = 0; n < grid.size(); n++) {
+            int i = (from + n) % grid.size();
+            if (i != not && grid.getTile(i) == Grid.OPEN) return i;
+        }
+        return -1;
+    }
+
+    private static int farthest (Grid grid, int from, int[] distance, int[] queue) {
+        // Breadth first search over walkable tiles, queue ends up holding them in order of distance so the last one is the farthest
+        // Returns how many tiles were reached, distance is only valid for those
+        Arrays.fill(distance, -1);
+        distance[from] = 0;
+        queue[0] = from;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int curr = queue[head++];
+            for (int n = 0; n < 5; n++) {
+                int next = grid.neighbour(curr, n);
+                if (next == -1 || !grid.isWalkable(next) || distance[next] != -1) continue;
+                distance[next] = distance[curr] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return tail;
+    }
+
+    public static Grid spiral (int width, int height) {
+        /*
+        One long corridor winding in from the top left corner to the middle, with a wall between every ring
+        The worst case for searches that spread out, the only way to the end is all the way round
+         */
+        Grid grid = new Grid(width, height);
+        int left = 0, top = 0, right = width - 1, bottom = height - 1;
+        int x = 0, y = 0;
+        grid.setTile(0, Grid.OPEN);
+        while (true) {
+            // RIGHT along the top of this ring
+            while (x < right) grid.setTile(grid.index(++x, y), Grid.OPEN);
+            top += 2;
+            if (y >= bottom) break;
+            // DOWN the right side
+            while (y < bottom) grid.setTile(grid.index(x, ++y), Grid.OPEN);
+            right -= 2;
+            if (x <= left) break;
+            // LEFT along the bottom
+            while (x > left) grid.setTile(grid.index(--x, y), Grid.OPEN);
+            bottom -= 2;
+            if (y <= top) break;
+            // UP the left side, stopping short of the ring outside this one
+            while (y > top) grid.setTile(grid.index(x, --y), Grid.OPEN);
+            left += 2;
+            if (x >= right) break;
+        }
+        grid.setTile(0, Grid.START);
+        grid.setTile(grid.index(x, y), Grid.END);
+        return grid;
+    }
+
+    public static Grid withTerrain (Grid grid, double fraction, long seed) {
+        // Turn about this fraction of the open tiles into weighted ones costing 2 to 9
+        Random random = new Random(seed);
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.getTile(i) == Grid.OPEN && random.nextDouble() < fraction) grid.setTile(i, (byte) (Grid.WEIGHT_BASE + 2 + random.nextInt(8)));
+        }
+        return grid;
+    }
+
+    public static Grid withTeleporters (Grid grid, long seed) {
+        // Turn two random open tiles into the teleporter pair, both are found before either is written so a failure leaves the grid as it was
+        int[] tiles = openTiles(grid, 2, 1000, new Random(seed));
+        if (tiles == null) throw new IllegalArgumentException("Could not find two open tiles for the teleporters");
+        for (int i : tiles) grid.setTile(i, Grid.TELEPORT);
+        return grid;
+    }
+
+    public static Grid withPortals (Grid grid, int pairs, long seed) {
+        // Turn random open tiles into this many labelled teleporter pairs, labels 0, 1, 2... so big counts only fit the binary format
+        // Every tile is found first, so running out of tries never leaves some pairs (or half of one) behind
+        int[] tiles = openTiles(grid, 2 * pairs, 1000 * pairs, new Random(seed));
+        if (tiles == null) throw new IllegalArgumentException("Could not find " + 2 * pairs + " open tiles for the teleporters");
+        for (int t = 0; t < tiles.length; t++) grid.setTeleporter(tiles[t], t / 2);
+        return grid;
+    }
+
+    private static int[] openTiles (Grid grid, int count, int maxTries, Random random) {
+        // Distinct random open tiles, null if they were not all found in time
+        // Tiles already taken are skipped just as if they had been written, so the same seed still picks the same tiles
+        long[] taken = new long[(grid.size() + 63) >>> 6];
+        int[] tiles = new int[count];
+        int found = 0;
+        for (int tries = 0; found < count && tries < maxTries; tries++) {
+            int i = random.nextInt(grid.size());
+            if (grid.getTile(i) != Grid.OPEN || (taken[i >>> 6] & (1L << i)) != 0) continue;
+            taken[i >>> 6] |= 1L << i;
+            tiles[found++] = i;
+        }
+        return found == count ? tiles : null;
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ Reads the text maze format straight into a Grid: width and height first, then one line of #.o*@ per row, digits 1-9 are weighted open tiles
+ and letters other than 'o' are labelled teleporters
+ Files in the binary format (see MazeBinary) are recognised by their first bytes and handed over to it
+ Files are memory mapped and every byte is looked at once, with no regex, no Strings per line and no Square per tile
+ Rows are split on any whitespace like Scanner.next() did, so a row can have spaces after it and several rows can share a line
+ Like typing the maze in, rows with the wrong length or other characters are skipped so files can have comments in them
+ **/
+
+public class MazeLoader {
+    // Largest piece of a file mapped at once, a single mapping cannot be bigger than 2GB
+    private static final long MAP_CHUNK = 1L << 30;
+
+    // Tile kind for every possible byte, -1 for anything that is not part of a maze
+    private static final byte[] KINDS = new byte[256];
+
+    // Bytes that end a row, the same ones Scanner splits its tokens on
+    private static final boolean[] SEPARATORS = new boolean[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            KINDS[b] = Grid.kind((char) b);
+            SEPARATORS[b] = Character.isWhitespace(b);
+        }
+    }
+
+    private final boolean reportInvalid;
+
+    // Header: the width and height numbers, read before any rows
+    private int width = -1, height = -1;
+    private int number = -1;
+    private static final int MAX_SIDE = 1_000_000_000;
+
+    private Grid grid;
+    // Current row is classified into this buffer and only copied into the grid once the whole line is known to be valid
+    private byte[] row;
+    private int[] specials;
+    // Character each special tile was written as, so teleporters keep their label
+    private char[] specialMarks;
+    private int specialCount, col, y;
+    private boolean rowValid = true;
+
+    private MazeLoader (boolean reportInvalid) {
+        this.reportInvalid = reportInvalid;
+    }
+
+    public static Grid load (Path file) throws IOException {
+        MazeLoader loader = new MazeLoader(false);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Binary mazes start with a magic number instead of the width, so either format can be passed anywhere a maze file is
+            if (MazeBinary.isBinary(channel)) return MazeBinary.load(channel);
+            long size = channel.size();
+            for (long pos = 0; pos < size && !loader.isDone(); pos += MAP_CHUNK) {
+                loader.feed(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_CHUNK, size - pos)));
+            }
+        }
+        return loader.finish();
+    }
+
+    public static Grid read (InputStream in) throws IOException {
+        // Fallback for stdin and anything else that cannot be mapped, read in big blocks instead of one token at a time
+        MazeLoader loader = new MazeLoader(true);
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while (!loader.isDone() && (n = in.read(buffer)) != -1) {
+            loader.feed(ByteBuffer.wrap(buffer, 0, n));
+        }
+        return loader.finish();
+    }
+
+    private boolean isDone () {
+        return grid != null && y == height;
+    }
+
+    private void feed (ByteBuffer buffer) {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit && !isDone(); i++) {
+            int b = buffer.get(i) & 0xFF;
+            if (grid == null) {
+                header(b);
+            } else if (SEPARATORS[b]) {
+                // Any run of whitespace ends the row, an empty row in between is just skipped
+                if (col > 0) endRow();
+            } else {
+                // Only keep classifying while the line could still be valid, the rest of a bad line is just skipped
+                if (rowValid && col < width) {
+                    byte kind = KINDS[b];
+                    if (kind < 0) {
+                        rowValid = false;
+                    } else {
+                        row[col] = kind;
+                        if (kind == Grid.START || kind == Grid.END || kind == Grid.TELEPORT) {
+                            if (specialCount == specials.length) {
+                                specials = Arrays.copyOf(specials, specialCount * 2);
+                                specialMarks = Arrays.copyOf(specialMarks, specialCount * 2);
+                            }
+                            specialMarks[specialCount] = (char) b;
+                            specials[specialCount++] = col;
+                        }
+                    }
+                }
+                col++;
+            }
+        }
+    }
+
+    private void header (int b) {
+        if (b >= '0' && b <= '9') {
+            // Checked before multiplying, otherwise a long enough number wraps around and loads as a small maze
+            int digit = b - '0';
+            if (number > (MAX_SIDE - digit) / 10) throw new IllegalArgumentException("Maze width and height are too big");
+            number = (number == -1 ? 0 : number * 10) + digit;
+        } else if (Character.isWhitespace(b)) {
+            if (number == -1) return;
+            if (width == -1) {
+                width = number;
+            } else {
+                height = number;
+                grid = new Grid(width, height);
+                row = new byte[width];
+                specials = new int[8];
+                specialMarks = new char[8];
+            }
+            number = -1;
+        } else {
+            throw new IllegalArgumentException("Mazes must start with their width and height");
+        }
+    }
+
+    private void endRow () {
+        if (rowValid && col == width) {
+            grid.copyRow(y, row);
+            // Start, end and teleporters also have to be recorded by the grid, they were noted while classifying
+            for (int s = 0; s < specialCount; s++) {
+                grid.setTile(specials[s], y, specialMarks[s]);
+            }
+            y++;
+        } else if (reportInvalid && col > 0) {
+            // Don't error if invalid line input given so allows so copypasting file contents which may have had other text or comments
+            System.out.println("Valid mazes can must have " + width + " characters per line and only consist of # (Wall), . (Open), 1-9 (Open, costing that much to walk onto), o (Start), * (End), @ or a letter (Teleporter, two of each)");
+        }
+        col = 0;
+        specialCount = 0;
+        rowValid = true;
+    }
+
+    private Grid finish () {
+        // Last line of a file does not need a newline after it
+        if (grid != null && y < height && col > 0) endRow();
+        if (grid == null) throw new IllegalArgumentException("Mazes must start with their width and height");
+        if (y < height) throw new IllegalArgumentException("Maze ended after " + y + " of " + height + " rows");
+        return grid;
+    }
+}
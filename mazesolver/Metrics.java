@@ -0,0 +1,36 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+import jdk.jfr.EventType;
+
+/**
+ Where every solve reports what it measured: each registered sink gets the SolveMetrics, and a Flight Recorder event is committed
+ With no sinks and no recording running a solve does not even measure anything (see isActive), so batch runs and benchmarks pay next to nothing for it
+ Main adds the ConsoleSink so the solver still prints what it always printed, and every front end can add the JMX one
+ **/
+
+public class Metrics {
+    // Sinks are added once at start up and read on every solve, from any thread
+    private static final CopyOnWriteArrayList<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+    // Looked up once, asking it whether a recording wants the event does not create an event every time
+    private static final EventType SOLVE_EVENT = EventType.getEventType(SolveEvent.class);
+
+    private Metrics () {
+    }
+
+    public static void addSink (MetricsSink sink) {
+        sinks.addIfAbsent(sink);
+    }
+
+    public static void removeSink (MetricsSink sink) {
+        sinks.remove(sink);
+    }
+
+    public static boolean isActive () {
+        // Timing the phases, reading the allocation counter and building SolveMetrics is only worth it when something reads them
+        return !sinks.isEmpty() || SOLVE_EVENT.isEnabled();
+    }
+
+    public static void publish (SolveMetrics metrics) {
+        SolveEvent.commit(metrics);
+        for (MetricsSink sink : sinks) sink.solved(metrics);
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ Somewhere the metrics of every solve go: the console, JMX, or anything else that wants to watch the solver
+ Called on the thread that did the solve, straight after it finished, so sinks have to be thread safe and quick
+ **/
+
+public interface MetricsSink {
+    void solved (SolveMetrics metrics);
+}
@@ -0,0 +1,51 @@
+/**
+ The open set of an A* search: tiles waiting to be expanded, lowest priority first
+ Lets the solver swap between queues depending on what the priorities look like without changing the search itself
+ **/
+
+public interface OpenSet {
+    // Adds the tile, or lowers its priority if it is already waiting and the new priority is lower (decrease-key)
+    void add (int tile, int priority);
+
+    // Removes and returns the tile with the lowest priority
+    int poll ();
+
+    boolean isEmpty ();
+
+    boolean contains (int tile);
+
+    int size ();
+
+    // Empties the set so it can be used for another search without allocating again, the counters below start again from 0 too
+    void clear ();
+
+    // Adds and priority changes since the last clear, and the most tiles that were ever waiting at once
+    int pushes ();
+
+    int peakSize ();
+
+    String name ();
+
+    long bytesUsed ();
+
+    static OpenSet choose (char hMode, int tiles) {
+        // null for the modes that never pop from an open set, a queue with a slot per tile is a lot to allocate for nothing on a huge maze
+        if (!usedBy(hMode)) return null;
+        return smallPriorities(hMode) ? new BucketQueue(tiles) : new IndexedHeap(tiles);
+    }
+
+    static boolean usedBy (char hMode) {
+        // Bidirectional, fork-join and hierarchical search keep their own frontiers
+        return hMode != 'b' && hMode != 'f' && hMode != 'h';
+    }
+
+    static boolean smallPriorities (char hMode) {
+        /*
+        The heuristic modes only ever produce small whole numbers (bounded by the maze size plus the distance so far),
+        so a bucket per priority is the cheapest queue for them
+        Weighted search priorities are path costs, at most 9 per step, so they are small whole numbers too (Dial's algorithm)
+        With no heuristic the priority is the expansion count which keeps growing, so use the heap
+         */
+        return hMode == 'e' || hMode == 'm' || hMode == 'p' || hMode == 'j' || hMode == 'w';
+    }
+}
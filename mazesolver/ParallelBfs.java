@@ -0,0 +1,124 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ Level by level breadth first search where each level's frontier is split up across a ForkJoinPool
+ Tiles are claimed by setting their seen stamp with compare-and-set, so only one thread ever
+ writes a tile's parent and distance and no locks or HashSet are needed
+ Every level is finished before the next starts, so the end is always found at its shortest distance
+ **/
+
+public class ParallelBfs {
+    // Lets us compare-and-set single entries of the seen stamps in SearchState
+    private static final VarHandle STAMP = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // Frontier pieces smaller than this are not worth handing to another thread
+    private static final int CHUNK = 2048;
+
+    private final Grid grid;
+    private final int width, height;
+    private final ForkJoinPool pool;
+
+    private int[] frontier = new int[64], next = new int[64];
+    private final AtomicInteger nextSize = new AtomicInteger();
+    private volatile boolean endFound;
+    private int end;
+
+    public ParallelBfs (Grid grid, ForkJoinPool pool) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.pool = pool;
+    }
+
+    public boolean search (SearchState state, int start, int end) {
+        this.end = end;
+        state.distance[start] = 0;
+        state.markSeen(start);
+        frontier[0] = start;
+        int frontierSize = 1;
+        endFound = false;
+
+        while (frontierSize > 0 && !endFound) {
+            // Every tile in the next level comes from a tile in this one, and each has at most 5 neighbours (4 sides and a teleporter)
+            int maxNext = (int) Math.min(grid.size(), 5L * frontierSize);
+            if (next.length < maxNext) next = new int[maxNext];
+            nextSize.set(0);
+
+            pool.invoke(new Expand(state, 0, frontierSize));
+
+            // Animation order is only needed level by level, so record it here on one thread
+            for (int f = 0; f < frontierSize; f++) state.addExpanded(frontier[f]);
+
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            frontierSize = nextSize.get();
+        }
+        return endFound;
+    }
+
+    private class Expand extends RecursiveAction {
+        private final SearchState state;
+        private final int from, to;
+
+        Expand (SearchState state, int from, int to) {
+            this.state = state;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute () {
+            if (to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Expand(state, from, middle), new Expand(state, middle, to));
+                return;
+            }
+            // Collect this piece's new tiles locally, then reserve room in the shared next level all at once
+            int[] found = new int[5 * (to - from)];
+            int count = 0;
+            for (int f = from; f < to; f++) {
+                int curr = frontier[f];
+                int x = grid.getX(curr), y = grid.getY(curr);
+                // LEFT, UP, RIGHT, DOWN
+                if (x > 0 && claim(curr, curr - 1)) found[count++] = curr - 1;
+                if (y > 0 && claim(curr, curr - width)) found[count++] = curr - width;
+                if (x < width-1 && claim(curr, curr + 1)) found[count++] = curr + 1;
+                if (y < height-1 && claim(curr, curr + width)) found[count++] = curr + width;
+                // TELEPORTER
+                if (grid.isTeleport(curr)) {
+                    int partner = grid.getPartner(curr);
+                    if (partner != -1 && claim(curr, partner)) found[count++] = partner;
+                }
+            }
+            int offset = nextSize.getAndAdd(count);
+            System.arraycopy(found, 0, next, offset, count);
+        }
+
+        private boolean claim (int curr, int tile) {
+            // True if this thread is the first to reach an open tile, the end is claimed too but never searched from
+            if (!grid.isWalkable(tile)) return false;
+            int generation = state.generation;
+            int old;
+            do {
+                old = (int) STAMP.getVolatile(state.stamp, tile);
+                if (old == generation) return false;
+            } while (!STAMP.compareAndSet(state.stamp, tile, old, generation));
+            state.parent[tile] = curr;
+            state.distance[tile] = state.distance[curr] + 1;
+            if (tile == end) {
+                endFound = true;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    public long bytesUsed () {
+        return 4L * (frontier.length + next.length);
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ Writes a solution out, either as the whole maze with the path drawn in or as just the path's moves
+ Which tiles are on the path is a bitmap filled while backtracking, so drawing a tile is one bit lookup instead of searching the path
+ Every row is built in one byte array and written in one go, so a huge maze can be streamed to a file without building a String
+ **/
+
+public class PathWriter {
+    private final Grid grid;
+
+    public PathWriter (Grid grid) {
+        this.grid = grid;
+    }
+
+    public static long[] newBitmap (int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    public static long[] mark (int[] path, int size) {
+        // For callers that only have the path, findPath can fill the bitmap itself while backtracking
+        long[] onPath = newBitmap(size);
+        for (int tile : path) onPath[tile >>> 6] |= 1L << tile;
+        return onPath;
+    }
+
+    public void writeGrid (long[] onPath, OutputStream out) throws IOException {
+        // Same marks printSolution always used: "p" on the path, "_" for anything else that is not the start, end or teleporter
+        // Teleporters are written with their label like the maze file had them, so it is still clear which ones are paired
+        int width = grid.getWidth();
+        byte[] row = new byte[width + 1];
+        row[width] = '\n';
+        // Tile in the high half and label in the low half, sorted they come up in the same order the rows are written
+        long[] teleporters = new long[grid.getTeleporterCount()];
+        for (int t = 0; t < teleporters.length; t++) teleporters[t] = (long) grid.getTeleporter(t) << 32 | grid.getTeleporterLabel(t);
+        Arrays.sort(teleporters);
+        int nextTeleporter = 0;
+        OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+        for (int y = 0; y < grid.getHeight(); y++) {
+            int first = grid.index(0, y);
+            for (int x = 0; x < width; x++) {
+                int item = first + x;
+                byte kind = grid.getTile(item);
+                if (kind == Grid.TELEPORT) {
+                    while (nextTeleporter < teleporters.length && (int) (teleporters[nextTeleporter] >>> 32) < item) nextTeleporter++;
+                    int label = nextTeleporter < teleporters.length && (int) (teleporters[nextTeleporter] >>> 32) == item ? (int) teleporters[nextTeleporter] : 0;
+                    // Binary mazes can have more pairs than the text format has letters, those are drawn as plain teleporters
+                    row[x] = (byte) (label <= 51 ? Grid.labelMark(label) : '@');
+                } else if (kind == Grid.START || kind == Grid.END) {
+                    row[x] = (byte) Grid.mark(kind);
+                } else {
+                    row[x] = (onPath[item >>> 6] & (1L << item)) != 0 ? (byte) 'p' : (byte) '_';
+                }
+            }
+            buffered.write(row);
+        }
+        // Flushed but not closed, out might be System.out
+        buffered.flush();
+    }
+
+    public void writeRuns (int[] path, OutputStream out) throws IOException {
+        /*
+        Only the moves, run-length encoded: the start as "x y", then a letter and how many steps that way
+        L, U, R, D for walking and @x,y for jumping through a teleporter to x,y, for example
+        3 1
+        R5 D2 @20,7 L1
+        The path array goes from the end back to the start so it is read backwards
+         */
+        StringBuilder runs = new StringBuilder();
+        int curr = path[path.length - 1];
+        runs.append(grid.getX(curr)).append(' ').append(grid.getY(curr)).append('\n');
+        char direction = 0;
+        int count = 0;
+        for (int i = path.length - 2; i >= 0; i--) {
+            int next = path[i];
+            char step = step(curr, next);
+            if (step != direction || step == '@') {
+                if (count > 0) runs.append(direction).append(count).append(' ');
+                direction = step;
+                count = 0;
+            }
+            if (step == '@') {
+                runs.append('@').append(grid.getX(next)).append(',').append(grid.getY(next)).append(' ');
+                direction = 0;
+            } else {
+                count++;
+            }
+            curr = next;
+        }
+        if (count > 0) runs.append(direction).append(count);
+        // Trailing space is left when the path ends on a jump
+        int end = runs.length();
+        while (end > 0 && runs.charAt(end - 1) == ' ') end--;
+        runs.setLength(end);
+        runs.append('\n');
+        out.write(runs.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private char step (int from, int to) {
+        int width = grid.getWidth();
+        if (to == from - 1 && grid.getY(to) == grid.getY(from)) return 'L';
+        if (to == from + 1 && grid.getY(to) == grid.getY(from)) return 'R';
+        if (to == from - width) return 'U';
+        if (to == from + width) return 'D';
+        return '@';
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ Estimate of the distance to the end that knows about every teleporter pair, so A* stays admissible on mazes full of portals
+ The estimate is the smaller of walking straight to the end and walking to any teleporter, then the best possible way on from there
+ That best way on is a small table worked out once per end: a shortest path search over just the teleporter tiles and the end,
+ using straight-line walking distances between them and the jumps, so routes through several pairs in a row are covered too
+ Maze keeps the tables it builds (see Maze.portalTable), so repeated queries to the same end with the same costs only pay for it once
+ The table is sorted so an estimate can stop looking as soon as no teleporter could beat what it already has
+ Walks are Manhattan distances, or straight lines for the Euclidean heuristic, the table uses the same measure as the estimates
+ so an estimate never drops by more than a step costs, not even across a jump, and A* never has to look at a tile twice
+ **/
+
+public class PortalHeuristic {
+    private final Grid grid;
+    private final int end, minCost, cheapTiles;
+    private final boolean euclidean;
+    // Teleporters that jump somewhere, sorted by how cheaply the end can be reached from them
+    private final int[] tileX, tileY, onward;
+
+    public PortalHeuristic (Grid grid, int end) {
+        this(grid, end, false, null);
+    }
+
+    public PortalHeuristic (Grid grid, int end, boolean euclidean, SearchWatcher watcher) {
+        // Every step and every jump costing 1
+        this(grid, end, 1, 1, 0, euclidean, watcher);
+    }
+
+    public PortalHeuristic (Grid grid, int end, int teleportCost, int minCost, int cheapTiles, SearchWatcher watcher) {
+        this(grid, end, teleportCost, minCost, cheapTiles, false, watcher);
+    }
+
+    PortalHeuristic (Grid grid, int end, int teleportCost, int minCost, int cheapTiles, boolean euclidean, SearchWatcher watcher) {
+        /*
+        Weighted mazes: a walk of n steps costs at least minCost per step, except up to cheapTiles steps onto tiles that always cost 1
+        For unweighted mazes minCost is 1 and nothing needs to be allowed for
+        The table takes teleporters squared steps, so with thousands of pairs a watcher that cancels is checked every round
+         */
+        this.grid = grid;
+        this.end = end;
+        this.minCost = minCost;
+        this.cheapTiles = cheapTiles;
+        this.euclidean = euclidean;
+
+        int count = 0;
+        int[] portals = new int[grid.getTeleporterCount()];
+        for (int t = 0; t < grid.getTeleporterCount(); t++) {
+            if (grid.getPartner(grid.getTeleporter(t)) != -1) portals[count++] = grid.getTeleporter(t);
+        }
+
+        // Dijkstra from the end over the teleporter tiles, everything is connected so the plain O(n^2) version is simplest
+        int[] best = new int[count];
+        boolean[] done = new boolean[count];
+        for (int p = 0; p < count; p++) best[p] = between(portals[p], end);
+        for (int round = 0; round < count; round++) {
+            SearchWatcher.check(watcher);
+            int curr = -1;
+            for (int p = 0; p < count; p++) {
+                if (!done[p] && (curr == -1 || best[p] < best[curr])) curr = p;
+            }
+            done[curr] = true;
+            int partner = grid.getPartner(portals[curr]);
+            for (int p = 0; p < count; p++) {
+                if (done[p]) continue;
+                // Walk from p to curr, or jump from p if curr is p's partner
+                int step = portals[p] == partner ? Math.min(teleportCost, between(portals[p], portals[curr])) : between(portals[p], portals[curr]);
+                best[p] = Math.min(best[p], step + best[curr]);
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int p = 0; p < count; p++) order[p] = p;
+        Arrays.sort(order, (a, b) -> Integer.compare(best[a], best[b]));
+        tileX = new int[count];
+        tileY = new int[count];
+        onward = new int[count];
+        for (int p = 0; p < count; p++) {
+            tileX[p] = grid.getX(portals[order[p]]);
+            tileY[p] = grid.getY(portals[order[p]]);
+            onward[p] = best[order[p]];
+        }
+    }
+
+    public int estimate (int i) {
+        int x = grid.getX(i), y = grid.getY(i);
+        int h = distance(x - grid.getX(end), y - grid.getY(end));
+        for (int p = 0; p < onward.length && onward[p] < h; p++) {
+            h = Math.min(h, distance(x - tileX[p], y - tileY[p]) + onward[p]);
+        }
+        return h;
+    }
+
+    private int between (int a, int b) {
+        return distance(grid.getX(a) - grid.getX(b), grid.getY(a) - grid.getY(b));
+    }
+
+    private int distance (int dx, int dy) {
+        // A straight line is never longer than the Manhattan distance, so it only needs allowing for in weighted mazes, which never use it
+        if (euclidean) return (int) Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
+        return walk(Math.abs(dx) + Math.abs(dy));
+    }
+
+    private int walk (int steps) {
+        // Least a walk of this many steps can cost
+        int cheap = Math.min(steps, cheapTiles);
+        return cheap + (steps - cheap) * minCost;
+    }
+}
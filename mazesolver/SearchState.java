@@ -0,0 +1,124 @@
+import java.util.Arrays;
+
+/**
+ Everything a search writes while it runs, kept apart from the Grid so the maze itself is never changed by solving
+ Replaces the distance and adj fields of Square and the HashSet of seen squares with flat arrays indexed by tile
+ The heuristic now lives inside the OpenSet, which is the only thing that needs it
+
+ A tile counts as seen when its stamp equals the current generation, so starting a new search is just generation++
+ and nothing has to be cleared: distance and parent are only ever read for tiles that have been seen this generation
+ **/
+
+public class SearchState {
+    final int[] distance, parent;
+
+    // Generation a tile was last seen in
+    final int[] stamp;
+    int generation = 1;
+
+    // Tiles in the order they were expanded, used by the GUI to animate the search
+    int[] order = new int[64];
+    int expanded = 0;
+
+    // Cost of the path found, the same as its length unless the maze has weighted tiles
+    int cost;
+
+    // Told about expanded tiles every BATCH of them while a search runs, null when nobody is watching
+    private static final int BATCH = 1024;
+    private SearchWatcher watcher;
+    private int reported;
+
+    // Only made when a search that needs them runs, then kept for the next search
+    private byte[] arrival;
+    private SearchState reverse;
+    private IndexedHeap heap;
+    private BucketQueue buckets;
+
+    public SearchState (int size) {
+        distance = new int[size];
+        parent = new int[size];
+        stamp = new int[size];
+    }
+
+    public boolean markSeen (int i) {
+        // Same contract as HashSet.add(): true only the first time the tile is seen
+        if (stamp[i] == generation) return false;
+        stamp[i] = generation;
+        return true;
+    }
+
+    public boolean isSeen (int i) {
+        return stamp[i] == generation;
+    }
+
+    public void reset () {
+        expanded = 0;
+        // After 4 billion searches the generation wraps around, only then do the stamps have to be cleared
+        if (++generation == 0) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        if (reverse != null) reverse.reset();
+    }
+
+    public void addExpanded (int i) {
+        if (expanded == order.length) order = Arrays.copyOf(order, expanded * 2);
+        order[expanded++] = i;
+        // Every search records its expanded tiles here, so this one check lets any of them be watched and cancelled
+        if (watcher != null && expanded - reported >= BATCH) report();
+    }
+
+    void watch (SearchWatcher watcher) {
+        this.watcher = watcher;
+        reported = expanded;
+    }
+
+    SearchWatcher getWatcher () {
+        return watcher;
+    }
+
+    void report () {
+        // Hands over whatever has not been reported yet, also called once the search is done for the last partial batch
+        SearchWatcher.check(watcher);
+        if (expanded > reported) watcher.expanded(order, reported, expanded);
+        reported = expanded;
+    }
+
+    public int getExpanded () {
+        return expanded;
+    }
+
+    public int[] getOrder () {
+        return Arrays.copyOf(order, expanded);
+    }
+
+    byte[] arrival () {
+        // Direction each tile was reached from, for jump point search
+        if (arrival == null) arrival = new byte[distance.length];
+        return arrival;
+    }
+
+    SearchState reverse () {
+        // Second state for searching backwards from the end, for bidirectional search
+        if (reverse == null) reverse = new SearchState(distance.length);
+        return reverse;
+    }
+
+    OpenSet queue (char hMode) {
+        // Same choice as OpenSet.choose, but kept so the next search does not have to allocate a queue, null when the mode has no use for one
+        if (!OpenSet.usedBy(hMode)) return null;
+        if (OpenSet.smallPriorities(hMode)) {
+            if (buckets == null) buckets = new BucketQueue(distance.length);
+            return buckets;
+        }
+        if (heap == null) heap = new IndexedHeap(distance.length);
+        return heap;
+    }
+
+    public long bytesUsed () {
+        long bytes = 4L * (distance.length + parent.length + stamp.length + order.length);
+        if (arrival != null) bytes += arrival.length;
+        if (reverse != null) bytes += reverse.bytesUsed();
+        return bytes;
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.concurrent.CancellationException;
+
+/**
+ Watches a search while it runs: it is told about expanded tiles a batch at a time and can ask for the search to stop
+ Called on the searching thread, so anything that has to reach Swing must be handed over (SwingWorker.publish does that)
+ **/
+
+public interface SearchWatcher {
+    // Tiles order[from] to order[to-1] were expanded since the last call, the array is reused so copy what is kept
+    void expanded (int[] order, int from, int to);
+
+    // Checked with every batch, a search that is cancelled stops by throwing CancellationException
+    boolean isCancelled ();
+
+    static void check (SearchWatcher watcher) {
+        // For the work before a search that has no tiles to report (component labels, the cluster graph, the teleporter table)
+        // so a cancel still stops it, watcher can be null when nobody is watching
+        if (watcher != null && watcher.isCancelled()) throw new CancellationException("Search cancelled");
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ Result of one query: whether the end was reached, the path and how much work it took
+ Owns its own copy of everything so it stays valid after the search state has gone back to the pool
+ **/
+
+public class Solution {
+    private final boolean found;
+    private final int[] path;
+    private final int tilesSearched, cost;
+    private final long nanos;
+
+    public Solution (boolean found, int[] path, int tilesSearched, long nanos) {
+        this(found, path, tilesSearched, nanos, found ? path.length - 1 : -1);
+    }
+
+    public Solution (boolean found, int[] path, int tilesSearched, long nanos, int cost) {
+        this.found = found;
+        this.path = path;
+        this.tilesSearched = tilesSearched;
+        this.nanos = nanos;
+        this.cost = cost;
+    }
+
+    public boolean isFound () {
+        return found;
+    }
+
+    public int getLength () {
+        // Steps from start to end, -1 if there is no path
+        return found ? path.length - 1 : -1;
+    }
+
+    public int getCost () {
+        // Sum of the step costs, the same as the length unless the maze has weighted tiles, -1 if there is no path
+        return cost;
+    }
+
+    public int[] getPath () {
+        // Tiles from the end back to the start, null if there is no path
+        return path;
+    }
+
+    public int getTilesSearched () {
+        return tilesSearched;
+    }
+
+    public long getNanos () {
+        return nanos;
+    }
+}
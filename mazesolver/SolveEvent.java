@@ -0,0 +1,91 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ Flight Recorder event for one solve, so slow mazes show up in a recording next to GC pauses and everything else the JVM does
+ Record with: java -XX:StartFlightRecording=filename=solves.jfr Main maze.txt, then: jfr print --events mazesolver.Solve solves.jfr
+ Committing costs nothing unless a recording has the event turned on
+ **/
+
+@Name("mazesolver.Solve")
+@Label("Maze Solve")
+@Category("Maze Solver")
+@Description("One maze solved, with the work the search did and the time each phase took")
+public class SolveEvent extends Event {
+    @Label("Source")
+    String source;
+
+    @Label("Mode")
+    char mode;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Path Length")
+    int pathLength;
+
+    @Label("Expansions")
+    int expansions;
+
+    @Label("Pushes")
+    int pushes;
+
+    @Label("Peak Open Set Size")
+    int peakOpenSize;
+
+    @Label("Bytes Allocated")
+    @DataAmount
+    long bytesAllocated;
+
+    @Label("Load Time")
+    @Timespan
+    long loadNanos;
+
+    @Label("Validate Time")
+    @Timespan
+    long validateNanos;
+
+    @Label("Search Time")
+    @Timespan
+    long searchNanos;
+
+    @Label("Backtrack Time")
+    @Timespan
+    long backtrackNanos;
+
+    @Label("Render Time")
+    @Timespan
+    long renderNanos;
+
+    static void commit (SolveMetrics metrics) {
+        SolveEvent event = new SolveEvent();
+        if (!event.shouldCommit()) return;
+        event.source = metrics.getSource();
+        event.mode = metrics.getMode();
+        event.width = metrics.getWidth();
+        event.height = metrics.getHeight();
+        event.found = metrics.isFound();
+        event.pathLength = metrics.getPathLength();
+        event.expansions = metrics.getExpansions();
+        event.pushes = metrics.getPushes();
+        event.peakOpenSize = metrics.getPeakOpenSize();
+        event.bytesAllocated = metrics.getBytesAllocated();
+        event.loadNanos = metrics.getPhaseNanos(SolveMetrics.LOAD);
+        event.validateNanos = metrics.getPhaseNanos(SolveMetrics.VALIDATE);
+        event.searchNanos = metrics.getPhaseNanos(SolveMetrics.SEARCH);
+        event.backtrackNanos = metrics.getPhaseNanos(SolveMetrics.BACKTRACK);
+        event.renderNanos = metrics.getPhaseNanos(SolveMetrics.RENDER);
+        event.commit();
+    }
+}
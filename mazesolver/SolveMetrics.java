@@ -0,0 +1,131 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ Everything measured about one solve: how much searching it took and how long each phase took, handed to the sinks in Metrics
+ Phases that did not happen for this solve (a query has nothing to render, a maze typed in has no file) stay at -1
+ Counters the search could not keep (the breadth first modes have no open set) are -1 too, so they are never mistaken for 0
+ **/
+
+public class SolveMetrics {
+    public static final int LOAD = 0, VALIDATE = 1, SEARCH = 2, BACKTRACK = 3, RENDER = 4;
+    public static final String[] PHASES = {"load", "validate", "search", "backtrack", "render"};
+
+    private final String source;
+    private final char mode;
+    private final int width, height;
+    private final long[] phaseNanos = {-1, -1, -1, -1, -1};
+    private boolean found;
+    private int pathLength = -1, cost = -1, expansions, pushes = -1, peakOpenSize = -1;
+    private long bytesAllocated = -1, bytesUsed = -1;
+    private String queueName;
+
+    public SolveMetrics (String source, char mode, int width, int height) {
+        this.source = source;
+        this.mode = mode;
+        this.width = width;
+        this.height = height;
+    }
+
+    public static long allocatedBytes () {
+        /*
+        Bytes the current thread has allocated so far, -1 if the JVM cannot tell
+        Only this thread is counted, so the work fork-join and hierarchical search hand to other threads is left out
+         */
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    void setPhase (int phase, long nanos) {
+        phaseNanos[phase] = nanos;
+    }
+
+    void setResult (boolean found, int pathLength, int cost) {
+        this.found = found;
+        this.pathLength = pathLength;
+        this.cost = cost;
+    }
+
+    void setSearch (int expansions, OpenSet queue) {
+        // The queue is left out for the modes that never use it
+        this.expansions = expansions;
+        if (queue != null) {
+            pushes = queue.pushes();
+            peakOpenSize = queue.peakSize();
+            queueName = queue.name();
+        }
+    }
+
+    void setMemory (long bytesAllocated, long bytesUsed) {
+        this.bytesAllocated = bytesAllocated;
+        this.bytesUsed = bytesUsed;
+    }
+
+    public String getSource () {
+        return source;
+    }
+
+    public char getMode () {
+        return mode;
+    }
+
+    public int getWidth () {
+        return width;
+    }
+
+    public int getHeight () {
+        return height;
+    }
+
+    public long getPhaseNanos (int phase) {
+        return phaseNanos[phase];
+    }
+
+    public long getTotalNanos () {
+        // Every phase that happened
+        long total = 0;
+        for (long nanos : phaseNanos) if (nanos > 0) total += nanos;
+        return total;
+    }
+
+    public boolean isFound () {
+        return found;
+    }
+
+    public int getPathLength () {
+        return pathLength;
+    }
+
+    public int getCost () {
+        return cost;
+    }
+
+    public int getExpansions () {
+        return expansions;
+    }
+
+    public int getPushes () {
+        return pushes;
+    }
+
+    public int getPeakOpenSize () {
+        return peakOpenSize;
+    }
+
+    public String getQueueName () {
+        // null when the mode did not use an open set
+        return queueName;
+    }
+
+    public long getBytesAllocated () {
+        return bytesAllocated;
+    }
+
+    public long getBytesUsed () {
+        // Grid, search state and open set, worked out from their array sizes
+        return bytesUsed;
+    }
+}
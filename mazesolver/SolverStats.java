@@ -0,0 +1,122 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ JMX sink: keeps running totals, the latest solve and the slowest solve, and serves them as the SolverStats MXBean
+ Slowest is by total time over every phase, so a maze that is slow to load is found as well as one that is slow to search
+ **/
+
+public class SolverStats implements MetricsSink, SolverStatsMXBean {
+    public static final String NAME = "mazesolver:type=SolverStats";
+
+    private static SolverStats registered;
+
+    private long solves, solvesWithoutPath, totalExpansions, totalPushes, totalSearchNanos;
+    private SolveMetrics last, slowest;
+
+    public static synchronized SolverStats register () {
+        // One instance for the whole JVM, registered with the platform MBean server and added as a sink the first time
+        if (registered == null) {
+            SolverStats stats = new SolverStats();
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(stats, new ObjectName(NAME));
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register " + NAME, e);
+            }
+            Metrics.addSink(stats);
+            registered = stats;
+        }
+        return registered;
+    }
+
+    public synchronized void solved (SolveMetrics metrics) {
+        solves++;
+        if (!metrics.isFound()) solvesWithoutPath++;
+        totalExpansions += metrics.getExpansions();
+        if (metrics.getPushes() > 0) totalPushes += metrics.getPushes();
+        totalSearchNanos += metrics.getPhaseNanos(SolveMetrics.SEARCH);
+        last = metrics;
+        if (slowest == null || metrics.getTotalNanos() > slowest.getTotalNanos()) slowest = metrics;
+    }
+
+    public synchronized long getSolves () {
+        return solves;
+    }
+
+    public synchronized long getSolvesWithoutPath () {
+        return solvesWithoutPath;
+    }
+
+    public synchronized long getTotalExpansions () {
+        return totalExpansions;
+    }
+
+    public synchronized long getTotalPushes () {
+        return totalPushes;
+    }
+
+    public synchronized double getTotalSearchMillis () {
+        return totalSearchNanos / 1e6;
+    }
+
+    public synchronized String getLastSource () {
+        return last == null ? null : last.getSource();
+    }
+
+    public synchronized int getLastExpansions () {
+        return last == null ? -1 : last.getExpansions();
+    }
+
+    public synchronized int getLastPushes () {
+        return last == null ? -1 : last.getPushes();
+    }
+
+    public synchronized int getLastPeakOpenSetSize () {
+        return last == null ? -1 : last.getPeakOpenSize();
+    }
+
+    public synchronized long getLastBytesAllocated () {
+        return last == null ? -1 : last.getBytesAllocated();
+    }
+
+    public double getLastLoadMillis () {
+        return lastMillis(SolveMetrics.LOAD);
+    }
+
+    public double getLastValidateMillis () {
+        return lastMillis(SolveMetrics.VALIDATE);
+    }
+
+    public double getLastSearchMillis () {
+        return lastMillis(SolveMetrics.SEARCH);
+    }
+
+    public double getLastBacktrackMillis () {
+        return lastMillis(SolveMetrics.BACKTRACK);
+    }
+
+    public double getLastRenderMillis () {
+        return lastMillis(SolveMetrics.RENDER);
+    }
+
+    private synchronized double lastMillis (int phase) {
+        // -1 when nothing has been solved yet or the phase did not happen
+        return last == null || last.getPhaseNanos(phase) < 0 ? -1 : last.getPhaseNanos(phase) / 1e6;
+    }
+
+    public synchronized String getSlowestSource () {
+        return slowest == null ? null : slowest.getSource();
+    }
+
+    public synchronized double getSlowestMillis () {
+        return slowest == null ? -1 : slowest.getTotalNanos() / 1e6;
+    }
+
+    public synchronized void reset () {
+        solves = solvesWithoutPath = totalExpansions = totalPushes = totalSearchNanos = 0;
+        last = slowest = null;
+    }
+}
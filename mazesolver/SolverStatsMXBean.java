@@ -0,0 +1,42 @@
+/**
+ What the solver shows over JMX (jconsole, VisualVM, or any JMX client) under mazesolver:type=SolverStats
+ Totals since start up (or the last reset), the most recent solve, and the slowest one so far so slow mazes can be found
+ **/
+
+public interface SolverStatsMXBean {
+    long getSolves ();
+
+    long getSolvesWithoutPath ();
+
+    long getTotalExpansions ();
+
+    long getTotalPushes ();
+
+    double getTotalSearchMillis ();
+
+    String getLastSource ();
+
+    int getLastExpansions ();
+
+    int getLastPushes ();
+
+    int getLastPeakOpenSetSize ();
+
+    long getLastBytesAllocated ();
+
+    double getLastLoadMillis ();
+
+    double getLastValidateMillis ();
+
+    double getLastSearchMillis ();
+
+    double getLastBacktrackMillis ();
+
+    double getLastRenderMillis ();
+
+    String getSlowestSource ();
+
+    double getSlowestMillis ();
+
+    void reset ();
+}
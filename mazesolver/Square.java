@@ -67,6 +67,7 @@ public class Square implements Comparable<Square> {
 
     public int compareTo(Square o) {
         // used in PriorityQueue to order elements, the lower the heuristic the higher the priority
-        return this.heuristic - o.heuristic;
+        // Integer.compare rather than subtracting so very large heuristics cannot overflow
+        return Integer.compare(this.heuristic, o.heuristic);
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import javax.swing.*;
+
+/**
+ Draws the maze from an image with one pixel per tile, instead of a HashMap with a Rectangle and Color for every tile
+ Colouring a seen tile is one write into the image's pixel array, and only the few screen pixels that tile covers are repainted
+ Painting only copies the part of the image that is on screen, scaled up (or down) by the zoom, so it does not depend on the maze size
+ Scroll to zoom around the mouse, drag to pan, double click to fit the whole maze in again
+ **/
+
+public class TileView extends JPanel {
+    private static final int SEEN = Color.GRAY.getRGB();
+    // Tiles can get as big as this on screen, zooming out stops once the whole maze fits in a quarter of the view
+    private static final double MAX_SCALE = 64;
+
+    private final Grid grid;
+    private final int width, height;
+    private final BufferedImage image;
+    // The image's own pixels, tile i is pixels[i] since both are indexed by y*width+x
+    private final int[] pixels;
+
+    // Screen position of tile x,y is offset + x*scale, scale is in pixels per tile and can be below 1 for huge mazes
+    private double scale, offsetX, offsetY;
+
+    public TileView (Grid grid, int viewWidth, int viewHeight) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        clearSeen();
+
+        setPreferredSize(new Dimension(viewWidth, viewHeight));
+        setSize(viewWidth, viewHeight);
+        setBackground(Color.DARK_GRAY);
+        fit();
+
+        MouseAdapter mouse = new MouseAdapter() {
+            private int lastX, lastY;
+
+            public void mousePressed (MouseEvent e) {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            public void mouseDragged (MouseEvent e) {
+                offsetX += e.getX() - lastX;
+                offsetY += e.getY() - lastY;
+                lastX = e.getX();
+                lastY = e.getY();
+                repaint();
+            }
+
+            public void mouseClicked (MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    fit();
+                    repaint();
+                }
+            }
+
+            public void mouseWheelMoved (MouseWheelEvent e) {
+                zoom(Math.pow(1.25, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    static Color color (Grid grid, int i) {
+        if (grid.isTeleport(i)) return Color.RED;
+        // Weighted tiles get darker the more they cost, from light grey for 1 to dark grey for 9
+        if (grid.isWeighted(i)) {
+            int shade = 255 - 20 * grid.cost(i);
+            return new Color(shade, shade, shade);
+        }
+        if (grid.isOpen(i)) return Color.WHITE;
+        if (grid.isStart(i)) return Color.BLUE;
+        if (grid.isEnd(i)) return Color.GREEN;
+        return Color.BLACK;
+    }
+
+    public void clearSeen () {
+        // Back to the maze as it was loaded, before a new search is animated over it
+        for (int i = 0; i < pixels.length; i++) pixels[i] = color(grid, i).getRGB();
+        repaint();
+    }
+
+    public void setSeen (int tile) {
+        // Must be called on the event dispatch thread like everything else that touches Swing
+        pixels[tile] = SEEN;
+        int x = tile % width, y = tile / width;
+        int left = screenX(x), top = screenY(y);
+        // Repaints asked for before the next paint are merged by Swing, so a batch of tiles is still one paint
+        repaint(left, top, Math.max(1, screenX(x + 1) - left), Math.max(1, screenY(y + 1) - top));
+    }
+
+    public void setSeen (int[] tiles, int from, int to) {
+        // A batch of tiles at once: every pixel is written, then one repaint covers the box around all of them
+        if (from >= to) return;
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+        for (int t = from; t < to; t++) {
+            int tile = tiles[t];
+            pixels[tile] = SEEN;
+            int x = tile % width, y = tile / width;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        int left = screenX(minX), top = screenY(minY);
+        repaint(left, top, Math.max(1, screenX(maxX + 1) - left), Math.max(1, screenY(maxY + 1) - top));
+    }
+
+    public void fit () {
+        // Biggest scale that shows every tile, centred in the view
+        scale = Math.min(MAX_SCALE, Math.min((double) getWidth() / width, (double) getHeight() / height));
+        offsetX = (getWidth() - width * scale) / 2;
+        offsetY = (getHeight() - height * scale) / 2;
+    }
+
+    private void zoom (double factor, int mouseX, int mouseY) {
+        double fitScale = Math.min((double) getWidth() / width, (double) getHeight() / height);
+        double newScale = Math.max(Math.min(fitScale, MAX_SCALE) / 4, Math.min(MAX_SCALE, scale * factor));
+        // Keep the tile under the mouse where it is
+        offsetX = mouseX - (mouseX - offsetX) * newScale / scale;
+        offsetY = mouseY - (mouseY - offsetY) * newScale / scale;
+        scale = newScale;
+        repaint();
+    }
+
+    private int screenX (int x) {
+        return (int) Math.floor(offsetX + x * scale);
+    }
+
+    private int screenY (int y) {
+        return (int) Math.floor(offsetY + y * scale);
+    }
+
+    @Override
+    protected void paintComponent (Graphics g) {
+        super.paintComponent(g);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+        // Only the tiles inside the area being repainted, one past each edge so partly covered tiles are drawn too
+        int x0 = Math.max(0, (int) Math.floor((clip.x - offsetX) / scale));
+        int y0 = Math.max(0, (int) Math.floor((clip.y - offsetY) / scale));
+        int x1 = Math.min(width, (int) Math.ceil((clip.x + clip.width - offsetX) / scale) + 1);
+        int y1 = Math.min(height, (int) Math.ceil((clip.y + clip.height - offsetY) / scale) + 1);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        // Nearest neighbour scaling keeps tiles as sharp squares
+        g.drawImage(image, screenX(x0), screenY(y0), screenX(x1), screenY(y1), x0, y0, x1, y1, null);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ A* with real step costs: walking onto a weighted tile '1' to '9' costs its digit, everything else costs 1 and the teleporter jump costs teleportCost
+ Priorities are whole numbers a little above the path cost, so the bucket queue (Dial's algorithm) is the open set
+ The heuristic is the Manhattan distance times the cheapest open tile cost, so it never overestimates even on expensive terrain
+ Only the start, end and teleporters are known to cost 1, they are allowed for so scaling up never makes the heuristic overestimate
+ If a tile that was already expanded is later reached more cheaply it goes back in the queue, so the path is always the cheapest one
+ **/
+
+public class WeightedSearch {
+    private final Grid grid;
+    private final int width, height, teleportCost, minCost;
+    // Tiles that always cost 1 however expensive the terrain is: start, end and teleporters
+    private final int cheapTiles;
+    private int end;
+    private PortalHeuristic portals;
+
+    public WeightedSearch (Grid grid, int teleportCost) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.teleportCost = teleportCost;
+        this.minCost = grid.getMinCost();
+        this.cheapTiles = 2 + grid.getTeleporterCount();
+    }
+
+    int getCheapTiles () {
+        return cheapTiles;
+    }
+
+    public boolean search (SearchState state, OpenSet queue, int start, int end) {
+        return search(state, queue, start, end, new PortalHeuristic(grid, end, teleportCost, minCost, cheapTiles, state.getWatcher()));
+    }
+
+    boolean search (SearchState state, OpenSet queue, int start, int end, PortalHeuristic portals) {
+        // The teleporter table has to have been built for this end with these costs, Maze keeps one per end
+        this.end = end;
+        this.portals = portals;
+        queue.clear();
+        queue.add(start, heuristic(start));
+        state.distance[start] = 0;
+        state.parent[start] = -1;
+        state.markSeen(start);
+
+        while (!queue.isEmpty()) {
+            int curr = queue.poll();
+            // Checked when taken off the queue, a cheaper way to the end can still be waiting when it is first found
+            if (curr == end) {
+                state.cost = state.distance[end];
+                countSteps(state, start, end);
+                return true;
+            }
+            state.addExpanded(curr);
+            int x = grid.getX(curr), y = grid.getY(curr);
+
+            // LEFT, UP, RIGHT, DOWN
+            if (x > 0) relax(state, queue, curr, curr - 1, -1);
+            if (y > 0) relax(state, queue, curr, curr - width, -1);
+            if (x < width-1) relax(state, queue, curr, curr + 1, -1);
+            if (y < height-1) relax(state, queue, curr, curr + width, -1);
+
+            // TELEPORTER
+            if (grid.isTeleport(curr)) {
+                int next = grid.getPartner(curr);
+                if (next != -1) relax(state, queue, curr, next, teleportCost);
+            }
+        }
+        return false;
+    }
+
+    private void relax (SearchState state, OpenSet queue, int curr, int next, int step) {
+        if (!grid.isWalkable(next)) return;
+        int distance = state.distance[curr] + (step == -1 ? grid.cost(next) : step);
+        if (state.markSeen(next) || distance < state.distance[next]) {
+            state.parent[next] = curr;
+            state.distance[next] = distance;
+            queue.add(next, distance + heuristic(next));
+        }
+    }
+
+    private int heuristic (int i) {
+        // Straight to the end, or through the teleporters if that could be cheaper
+        // A few steps might be onto tiles that always cost 1, the rest cost at least minCost
+        return portals.estimate(i);
+    }
+
+    private void countSteps (SearchState state, int start, int end) {
+        // findPath expects the distance to be counted in steps, so swap the costs on the path for step counts
+        int steps = 0;
+        for (int t = end; t != start; t = state.parent[t]) steps++;
+        for (int t = end; t != start; t = state.parent[t]) state.distance[t] = steps--;
+        state.distance[start] = 0;
+    }
+}